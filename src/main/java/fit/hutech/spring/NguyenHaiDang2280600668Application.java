@@ -2,8 +2,10 @@ package fit.hutech.spring;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class NguyenHaiDang2280600668Application {
 
 	public static void main(String[] args) {
@@ -1,18 +1,31 @@
 package fit.hutech.spring.controllers;
 
+import fit.hutech.spring.dto.ReportJob;
 import fit.hutech.spring.entities.Book;
 import fit.hutech.spring.entities.Category;
 import fit.hutech.spring.entities.Order;
 import fit.hutech.spring.entities.OrderStatus;
 import fit.hutech.spring.services.BookService;
 import fit.hutech.spring.services.CategoryService;
+import fit.hutech.spring.services.DashboardService;
 import fit.hutech.spring.services.ExcelExportService;
+import fit.hutech.spring.services.ExportCheckpointService;
+import fit.hutech.spring.services.InvoiceService;
 import fit.hutech.spring.services.OrderService;
+import fit.hutech.spring.services.ReportJobService;
 import fit.hutech.spring.services.UserService;
+import fit.hutech.spring.utils.ThrottledPasswordEncoder;
+import fit.hutech.spring.viewmodels.ReportJobVm;
+import fit.hutech.spring.viewmodels.ReportRange;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -20,8 +33,11 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 
 import java.security.Principal;
+import java.time.LocalDate;
+import java.util.List;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 
@@ -35,6 +51,10 @@ public class AdminController {
     private final OrderService orderService;
     private final UserService userService;
     private final ExcelExportService excelExportService;
+    private final DashboardService dashboardService;
+    private final ReportJobService reportJobService;
+    private final ExportCheckpointService exportCheckpointService;
+    private final InvoiceService invoiceService;
 
     @GetMapping
     public String adminHome() {
@@ -46,30 +66,32 @@ public class AdminController {
         model.addAttribute("currentPage", "dashboard");
         model.addAttribute("pageTitle", "Dashboard");
         
+        var stats = dashboardService.getStatistics();
+        
         // Main Statistics
-        var allBooks = bookService.getAllBooks(0, Integer.MAX_VALUE, "id");
-        model.addAttribute("totalBooks", allBooks.size());
-        model.addAttribute("pendingOrders", orderService.countByStatus(OrderStatus.PENDING));
-        model.addAttribute("totalRevenue", orderService.getTotalRevenue());
-        model.addAttribute("lowStockBooks", bookService.getLowStockBooks(5).size());
+        model.addAttribute("totalBooks", stats.getTotalBooks());
+        model.addAttribute("pendingOrders", stats.getPendingOrders());
+        model.addAttribute("totalRevenue", stats.getTotalRevenue());
+        model.addAttribute("lowStockBooks", stats.getLowStockBooks());
         
         // Additional Statistics
-        model.addAttribute("totalCategories", categoryService.getAllCategories().size());
-        model.addAttribute("totalUsers", userService.getAllUsers().size());
-        model.addAttribute("processingOrders", orderService.countByStatus(OrderStatus.PROCESSING));
-        model.addAttribute("completedOrders", orderService.countByStatus(OrderStatus.DELIVERED));
-        model.addAttribute("featuredBooks", bookService.getFeaturedBooks().size());
-        model.addAttribute("outOfStockBooks", bookService.getLowStockBooks(0).size());
+        model.addAttribute("totalCategories", stats.getTotalCategories());
+        model.addAttribute("totalUsers", stats.getTotalUsers());
+        model.addAttribute("processingOrders", stats.getProcessingOrders());
+        model.addAttribute("completedOrders", stats.getCompletedOrders());
+        model.addAttribute("featuredBooks", stats.getFeaturedBooks());
+        model.addAttribute("outOfStockBooks", stats.getOutOfStockBooks());
         
         // Recent orders
         Page<Order> recentOrders = orderService.findAll(0, 5);
         model.addAttribute("recentOrders", recentOrders.getContent());
         
         // Low stock alert
-        model.addAttribute("lowStockList", bookService.getLowStockBooks(5));
+        model.addAttribute("lowStockList", dashboardService.getLowStockPreview());
         
         // Top categories by book count
         model.addAttribute("categories", categoryService.getAllCategories());
+        model.addAttribute("bookCounts", categoryService.getBookCountsByCategory());
         
         return "admin/dashboard";
     }
@@ -148,14 +170,8 @@ public class AdminController {
             return "admin/book-form";
         }
         
-        // Handle additive stock: add to existing stock instead of replacing
-        if (addStock > 0) {
-            Book existingBook = bookService.getBookById(book.getId())
-                    .orElseThrow(() -> new IllegalArgumentException("Book not found"));
-            book.setStock(existingBook.getStock() + addStock);
-        }
-        
-        bookService.updateBook(book);
+        // Additive stock is applied to the current stock inside the update's own transaction
+        bookService.updateBook(book, addStock);
         redirectAttributes.addFlashAttribute("success", "Book updated successfully!");
         return "redirect:/admin/books";
     }
@@ -173,19 +189,14 @@ public class AdminController {
     
     @PostMapping("/books/toggle-enabled/{id}")
     public String toggleEnabled(@PathVariable Long id, RedirectAttributes redirectAttributes) {
-        Book book = bookService.getBookById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Book not found"));
-        bookService.setEnabled(id, !book.getEnabled());
-        String status = book.getEnabled() ? "disabled" : "enabled";
+        String status = bookService.toggleEnabled(id) ? "enabled" : "disabled";
         redirectAttributes.addFlashAttribute("success", "Book " + status + " successfully!");
         return "redirect:/admin/books";
     }
 
     @PostMapping("/books/toggle-featured/{id}")
     public String toggleFeatured(@PathVariable Long id, RedirectAttributes redirectAttributes) {
-        Book book = bookService.getBookById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Book not found"));
-        bookService.setFeatured(id, !book.getFeatured());
+        bookService.toggleFeatured(id);
         redirectAttributes.addFlashAttribute("success", "Featured status updated!");
         return "redirect:/admin/books";
     }
@@ -197,6 +208,7 @@ public class AdminController {
         model.addAttribute("currentPage", "categories");
         model.addAttribute("pageTitle", "Manage Categories");
         model.addAttribute("categories", categoryService.getAllCategories());
+        model.addAttribute("bookCounts", categoryService.getBookCountsByCategory());
         model.addAttribute("newCategory", new Category());
         return "admin/categories";
     }
@@ -271,6 +283,21 @@ public class AdminController {
         return "redirect:/admin/orders/" + id;
     }
 
+    @PostMapping("/orders/bulk-status")
+    public String bulkUpdateOrderStatus(@RequestParam(required = false) List<Long> orderIds,
+                                        @RequestParam OrderStatus status,
+                                        RedirectAttributes redirectAttributes) {
+        if (orderIds == null || orderIds.isEmpty()) {
+            redirectAttributes.addFlashAttribute("error", "Select at least one order");
+            return "redirect:/admin/orders";
+        }
+        int updated = orderService.updateStatuses(orderIds, status).size();
+        int skipped = orderIds.size() - updated;
+        redirectAttributes.addFlashAttribute("success", updated + " order(s) moved to " + status.getDisplayName()
+                + (skipped > 0 ? ", " + skipped + " skipped" : ""));
+        return "redirect:/admin/orders";
+    }
+
     // ==================== USERS MANAGEMENT ====================
     
     @GetMapping("/users")
@@ -314,7 +341,12 @@ public class AdminController {
             redirectAttributes.addFlashAttribute("error", "Password must be at least 8 characters");
             return "redirect:/admin/users/" + id;
         }
-        userService.changePassword(id, newPassword);
+        try {
+            userService.changePassword(id, newPassword);
+        } catch (ThrottledPasswordEncoder.HashingBusyException e) {
+            redirectAttributes.addFlashAttribute("error", "The server is busy, please try again in a moment");
+            return "redirect:/admin/users/" + id;
+        }
         redirectAttributes.addFlashAttribute("success", "Password changed successfully!");
         return "redirect:/admin/users/" + id;
     }
@@ -355,21 +387,111 @@ public class AdminController {
         return "admin/reports";
     }
     
+    // Incremental exports move the checkpoint, so they are only accepted through POST /reports/jobs; a
+    // prefetched or retried GET must never consume a window
     @GetMapping("/reports/export")
-    public ResponseEntity<byte[]> exportReports() {
+    public ResponseEntity<StreamingResponseBody> exportReports(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "false") boolean incremental) {
+        if (incremental) {
+            return ResponseEntity.status(HttpStatus.METHOD_NOT_ALLOWED).build();
+        }
+        ReportRange range;
+        try {
+            range = ReportRange.ofDays(startDate, endDate);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String filename = "SalesReport_" + new java.text.SimpleDateFormat("yyyyMMdd_HHmmss").format(new java.util.Date()) + ".xlsx";
+        
+        // Workbook is written directly to the response; no Content-Length since the size is unknown upfront
+        StreamingResponseBody body = out -> excelExportService.writeSalesReport(range.startDate(), range.endDate(), out);
+        
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .body(body);
+    }
+    
+    // Background export: submit, poll the job, then download once it has completed
+    @PostMapping("/reports/jobs")
+    @ResponseBody
+    public ResponseEntity<?> submitReportJob(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "false") boolean incremental) {
         try {
-            byte[] excelBytes = excelExportService.generateSalesReport(null, null);
-            
-            String filename = "SalesReport_" + new java.text.SimpleDateFormat("yyyyMMdd_HHmmss").format(new java.util.Date()) + ".xlsx";
-            
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .contentLength(excelBytes.length)
-                    .body(excelBytes);
-                    
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            ReportJob job = reportJobService.submitSalesReport(resolveReportRange(startDate, endDate, incremental));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(ReportJobVm.from(job));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
+        } catch (TaskRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(java.util.Map.of("error", "Too many reports are being generated, please try again later"));
+        }
+    }
+    
+    @GetMapping("/reports/jobs/{jobId}")
+    @ResponseBody
+    public ResponseEntity<ReportJobVm> getReportJob(@PathVariable String jobId) {
+        return reportJobService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(ReportJobVm.from(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping("/reports/jobs/{jobId}/download")
+    public ResponseEntity<Resource> downloadReportJob(@PathVariable String jobId) {
+        ReportJob job = reportJobService.getJob(jobId).orElse(null);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (job.getStatus() != ReportJob.Status.COMPLETED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        
+        FileSystemResource resource = new FileSystemResource(job.getFile());
+        if (!resource.exists()) {
+            return ResponseEntity.status(HttpStatus.GONE).build();
+        }
+        String filename = "SalesReport_" + new java.text.SimpleDateFormat("yyyyMMdd_HHmmss")
+                .format(java.util.Date.from(job.getCompletedAt())) + ".xlsx";
+        
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .body(resource);
+    }
+    
+    // ZIP of the invoices of every delivered order placed in the range
+    @GetMapping("/invoices/export")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        ReportRange range;
+        try {
+            range = ReportRange.ofDays(startDate, endDate);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String filename = "Invoices_" + (startDate != null ? startDate : "all") + "_" + (endDate != null ? endDate : "now") + ".zip";
+        
+        StreamingResponseBody body = out -> invoiceService.writeArchive(range.startDate(), range.endDate(), out);
+        
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
+    }
+    
+    // Incremental exports cover the orders placed since the last successful incremental export
+    private ReportRange resolveReportRange(LocalDate startDate, LocalDate endDate, boolean incremental) {
+        if (incremental) {
+            if (startDate != null || endDate != null) {
+                throw new IllegalArgumentException("Incremental export cannot be combined with a date range");
+            }
+            return exportCheckpointService.nextWindow(ExportCheckpointService.SALES_REPORT);
         }
+        return ReportRange.ofDays(startDate, endDate);
     }
 }
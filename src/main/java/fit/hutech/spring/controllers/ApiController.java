@@ -2,9 +2,12 @@ package fit.hutech.spring.controllers;
 
 import fit.hutech.spring.entities.Book;
 import fit.hutech.spring.services.BookService;
+import fit.hutech.spring.services.BookSuggestionService;
 import fit.hutech.spring.services.CategoryService;
+import fit.hutech.spring.viewmodels.BookCursorPageVm;
 import fit.hutech.spring.viewmodels.BookGetVm;
 import fit.hutech.spring.viewmodels.BookPostVm;
+import fit.hutech.spring.viewmodels.BookSuggestionVm;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
@@ -13,6 +16,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1")
@@ -21,12 +25,21 @@ import java.util.List;
 public class ApiController {
     private final BookService bookService;
     private final CategoryService categoryService;
+    private final BookSuggestionService bookSuggestionService;
+    
+    private static final int MAX_CURSOR_LIMIT = 500;
 
     @GetMapping("/books")
-    public ResponseEntity<List<BookGetVm>> getAllBooks(
+    public ResponseEntity<?> getAllBooks(
             @RequestParam(defaultValue = "0") Integer pageNo,
             @RequestParam(defaultValue = "20") Integer pageSize,
-            @RequestParam(defaultValue = "id") String sortBy) {
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit) {
+        // Cursor mode (?after=<cursor>&limit=N) walks the catalog by id without OFFSET
+        if (after != null || limit != null) {
+            return getBooksByCursor(after, limit);
+        }
         return ResponseEntity.ok(bookService.getAllBooks(
                 pageNo == null ? 0 : pageNo,
                 pageSize == null ? 20 : pageSize,
@@ -36,10 +49,32 @@ public class ApiController {
                 .toList());
     }
 
+    private ResponseEntity<?> getBooksByCursor(String after, Integer limit) {
+        Long afterId;
+        try {
+            afterId = after == null || after.isBlank() ? null : BookCursorPageVm.decodeCursor(after);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        int pageLimit = Math.min(Math.max(limit == null ? 20 : limit, 1), MAX_CURSOR_LIMIT);
+        
+        // Fetch one extra row to know whether another page exists
+        List<Book> books = bookService.getBooksAfter(afterId, pageLimit + 1);
+        boolean hasMore = books.size() > pageLimit;
+        if (hasMore) {
+            books = books.subList(0, pageLimit);
+        }
+        
+        return ResponseEntity.ok(BookCursorPageVm.builder()
+                .books(books.stream().map(BookGetVm::from).toList())
+                .nextCursor(hasMore ? BookCursorPageVm.encodeCursor(books.get(books.size() - 1).getId()) : null)
+                .hasMore(hasMore)
+                .build());
+    }
+
     @GetMapping("/books/{id}")
     public ResponseEntity<BookGetVm> getBookById(@PathVariable @NotNull Long id) {
-        return ResponseEntity.ok(bookService.getBookById(id)
-                .map(BookGetVm::from)
+        return ResponseEntity.ok(bookService.getBookVmById(id)
                 .orElse(null));
     }
 
@@ -57,6 +92,14 @@ public class ApiController {
                 .toList());
     }
 
+    // Lightweight completions for search-as-you-type; served from memory, no DB query
+    @GetMapping("/books/suggest")
+    public ResponseEntity<List<BookSuggestionVm>> suggestBooks(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") Integer limit) {
+        return ResponseEntity.ok(bookSuggestionService.suggest(q, limit == null ? 10 : limit));
+    }
+
     @PostMapping("/books")
     public ResponseEntity<BookGetVm> createBook(@RequestBody @Valid BookPostVm bookPostVm) {
         Book book = new Book();
@@ -77,13 +120,24 @@ public class ApiController {
         Book book = bookService.getBookById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found"));
         
-        book.setTitle(bookPostVm.title());
-        book.setAuthor(bookPostVm.author());
-        book.setPrice(bookPostVm.price());
-        book.setCategory(categoryService.getCategoryById(bookPostVm.categoryId())
-                .orElseThrow(() -> new IllegalArgumentException("Category not found")));
+        // The loaded book is read-only; the changes travel on a detached copy and updateBook applies them
+        Book changes = Book.builder()
+                .id(id)
+                .title(bookPostVm.title())
+                .author(bookPostVm.author())
+                .price(bookPostVm.price())
+                .category(categoryService.getCategoryById(bookPostVm.categoryId())
+                        .orElseThrow(() -> new IllegalArgumentException("Category not found")))
+                .description(book.getDescription())
+                .publisher(book.getPublisher())
+                .publicationYear(book.getPublicationYear())
+                .imageUrl(book.getImageUrl())
+                .discount(book.getDiscount())
+                .stock(book.getStock())
+                .featured(book.getFeatured())
+                .build();
         
-        bookService.updateBook(book);
+        bookService.updateBook(changes);
         return ResponseEntity.ok(BookGetVm.from(book));
     }
 
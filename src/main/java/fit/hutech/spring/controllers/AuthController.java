@@ -2,12 +2,16 @@ package fit.hutech.spring.controllers;
 
 import fit.hutech.spring.dto.LoginRequest;
 import fit.hutech.spring.dto.LoginResponse;
+import fit.hutech.spring.dto.RefreshTokenRequest;
+import fit.hutech.spring.services.RefreshTokenService;
 import fit.hutech.spring.services.UserService;
 import fit.hutech.spring.utils.JwtUtil;
+import fit.hutech.spring.utils.ThrottledPasswordEncoder;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -18,7 +22,6 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -30,43 +33,75 @@ public class AuthController {
     private final AuthenticationManager authenticationManager;
     private final UserService userService;
     private final JwtUtil jwtUtil;
+    private final RefreshTokenService refreshTokenService;
 
-    @Value("${jwt.expiration}")
+    @Value("${jwt.access-expiration:900000}")
     private long jwtExpiration;
 
     @PostMapping("/login")
     public ResponseEntity<?> login(@Valid @RequestBody LoginRequest loginRequest) {
         log.info("Login attempt for user: {}", loginRequest.getUsername());
         
+        final UserDetails userDetails;
         try {
-            authenticationManager.authenticate(
+            // The authenticated principal is the loaded user, so no second lookup is needed
+            Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
                     loginRequest.getUsername(),
                     loginRequest.getPassword()
                 )
             );
+            userDetails = (UserDetails) authentication.getPrincipal();
         } catch (BadCredentialsException e) {
             log.warn("Invalid credentials for user: {}", loginRequest.getUsername());
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                 .body(Map.of("error", "Invalid username or password"));
+        } catch (ThrottledPasswordEncoder.HashingBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "2")
+                .body(Map.of("error", e.getMessage()));
         }
 
-        final UserDetails userDetails = userService.loadUserByUsername(loginRequest.getUsername());
-        final String token = jwtUtil.generateToken(userDetails);
+        LoginResponse response = issueTokens(userDetails, refreshTokenService.issue(userDetails.getUsername()));
+        log.info("Login successful for user: {}, roles: {}", loginRequest.getUsername(), response.getRoles());
+        return ResponseEntity.ok(response);
+    }
 
-        var roles = userDetails.getAuthorities().stream()
-            .map(auth -> auth.getAuthority())
-            .toList();
+    // Exchanges a refresh token for a new access token and a new refresh token, without checking the password
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        var rotation = refreshTokenService.rotate(request.getRefreshToken());
+        if (rotation.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of("error", "Invalid or expired refresh token"));
+        }
 
-        log.info("Login successful for user: {}, roles: {}", loginRequest.getUsername(), roles);
+        UserDetails userDetails = userService.loadUserByUsername(rotation.get().username());
+        if (!userDetails.isEnabled() || !userDetails.isAccountNonLocked()) {
+            refreshTokenService.revoke(rotation.get().refreshToken());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body(Map.of("error", "Account is disabled or locked"));
+        }
+        return ResponseEntity.ok(issueTokens(userDetails, rotation.get().refreshToken()));
+    }
 
-        return ResponseEntity.ok(LoginResponse.builder()
-            .token(token)
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@Valid @RequestBody RefreshTokenRequest request) {
+        refreshTokenService.revoke(request.getRefreshToken());
+        return ResponseEntity.noContent().build();
+    }
+
+    private LoginResponse issueTokens(UserDetails userDetails, String refreshToken) {
+        return LoginResponse.builder()
+            .token(jwtUtil.generateToken(userDetails))
+            .refreshToken(refreshToken)
             .type("Bearer")
             .username(userDetails.getUsername())
-            .roles(roles)
+            .roles(userDetails.getAuthorities().stream()
+                .map(auth -> auth.getAuthority())
+                .toList())
             .expiresIn(jwtExpiration)
-            .build());
+            .build();
     }
 
     @GetMapping("/validate")
@@ -139,21 +174,11 @@ public class AuthController {
             log.info("Generating OAuth JWT token for user: {} (email: {})", username, email);
             
             UserDetails userDetails = userService.loadUserByUsername(username);
-            String token = jwtUtil.generateToken(userDetails);
-            
-            List<String> roles = userDetails.getAuthorities().stream()
-                .map(auth -> auth.getAuthority())
-                .toList();
+            LoginResponse response = issueTokens(userDetails, refreshTokenService.issue(username));
             
             log.info("OAuth JWT token generated for user: {}", username);
             
-            return ResponseEntity.ok(LoginResponse.builder()
-                .token(token)
-                .username(username)
-                .roles(roles)
-                .type("Bearer")
-                .expiresIn(jwtExpiration)
-                .build());
+            return ResponseEntity.ok(response);
         } catch (Exception e) {
             log.error("Failed to generate OAuth token: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -44,16 +44,14 @@ public class BookController {
                         @RequestParam(defaultValue = "0") Integer pageNo,
                         @RequestParam(defaultValue = "12") Integer pageSize) {
 
-                var allBooks = bookService.advancedSearch(keyword, categoryId, minPrice, maxPrice, inStock, sortBy);
+                // Only the requested page is read; the total comes from a separate COUNT query
+                var page = bookService.advancedSearch(keyword, categoryId, minPrice, maxPrice, inStock, sortBy,
+                                pageNo, pageSize);
                 
-                int totalBooks = allBooks.size();
-                int totalPages = Math.max(1, (int) Math.ceil(totalBooks / (double) pageSize));
-                int startIndex = pageNo * pageSize;
-                int endIndex = Math.min(startIndex + pageSize, totalBooks);
+                long totalBooks = page.getTotalElements();
+                int totalPages = Math.max(1, page.getTotalPages());
                 
-                var books = (startIndex < totalBooks) ? allBooks.subList(startIndex, endIndex) : allBooks;
-                
-                model.addAttribute("books", books);
+                model.addAttribute("books", page.getContent());
                 model.addAttribute("currentPage", pageNo);
                 model.addAttribute("totalPages", totalPages);
                 model.addAttribute("categories", categoryService.getAllCategories());
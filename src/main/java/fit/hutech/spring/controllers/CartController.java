@@ -1,14 +1,10 @@
 package fit.hutech.spring.controllers;
 
 import fit.hutech.spring.entities.User;
+import fit.hutech.spring.services.AuthenticationService;
 import fit.hutech.spring.services.BookService;
 import fit.hutech.spring.services.CartService;
-import fit.hutech.spring.services.UserService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -21,31 +17,11 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class CartController {
     private final CartService cartService;
-    private final UserService userService;
+    private final AuthenticationService authService;
     private final BookService bookService;
 
     private Optional<User> getCurrentUser() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        if (auth == null || !auth.isAuthenticated()) {
-            return Optional.empty();
-        }
-        
-        Object principal = auth.getPrincipal();
-        
-        if (principal instanceof UserDetails) {
-            return userService.findByUsername(((UserDetails) principal).getUsername());
-        } else if (principal instanceof OAuth2User) {
-            String email = ((OAuth2User) principal).getAttribute("email");
-            if (email == null) {
-                String login = ((OAuth2User) principal).getAttribute("login");
-                if (login != null) {
-                    email = login + "@github.oauth";
-                }
-            }
-            return userService.findByEmail(email);
-        }
-        
-        return Optional.empty();
+        return authService.getCurrentUser();
     }
 
     @GetMapping
@@ -3,6 +3,7 @@ package fit.hutech.spring.controllers;
 import fit.hutech.spring.services.EmailService;
 import fit.hutech.spring.services.OtpService;
 import fit.hutech.spring.services.UserService;
+import fit.hutech.spring.utils.ThrottledPasswordEncoder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Controller;
@@ -113,7 +114,13 @@ public class ForgotPasswordController {
             return "redirect:/forgot-password";
         }
         
-        userService.changePassword(userOpt.get().getId(), newPassword);
+        try {
+            userService.changePassword(userOpt.get().getId(), newPassword);
+        } catch (ThrottledPasswordEncoder.HashingBusyException e) {
+            redirectAttributes.addFlashAttribute("email", email);
+            redirectAttributes.addFlashAttribute("error", "The server is busy, please try again in a moment");
+            return "redirect:/forgot-password/reset";
+        }
         log.info("Password reset successful for email: {}", email);
         
         redirectAttributes.addFlashAttribute("success", 
@@ -3,10 +3,13 @@ package fit.hutech.spring.controllers;
 import fit.hutech.spring.entities.Order;
 import fit.hutech.spring.entities.OrderStatus;
 import fit.hutech.spring.services.AuthenticationService;
+import fit.hutech.spring.services.InvoiceService;
 import fit.hutech.spring.services.OrderService;
 import fit.hutech.spring.services.PdfService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -14,6 +17,10 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.UncheckedIOException;
 
 @Controller
 @RequestMapping("/invoice")
@@ -22,11 +29,12 @@ import org.springframework.web.bind.annotation.RequestMapping;
 public class InvoiceController {
     
     private final OrderService orderService;
+    private final InvoiceService invoiceService;
     private final PdfService pdfService;
     private final AuthenticationService authService;
     
     @GetMapping("/download/{orderId}")
-    public ResponseEntity<byte[]> downloadInvoice(@PathVariable Long orderId) {
+    public ResponseEntity<?> downloadInvoice(@PathVariable Long orderId, WebRequest webRequest) {
         // Get current user
         var userOpt = authService.getCurrentUser();
         if (userOpt.isEmpty()) {
@@ -54,16 +62,34 @@ public class InvoiceController {
             return ResponseEntity.badRequest().build();
         }
         
+        String filename = "Invoice_" + order.getOrderNumber() + ".pdf";
+        
         try {
-            byte[] pdfBytes = pdfService.generateInvoice(order);
+            InvoiceService.StoredInvoice invoice = invoiceService.getOrRender(order);
             
-            String filename = "Invoice_" + order.getOrderNumber() + ".pdf";
+            // Browser already holds this exact file
+            if (webRequest.checkNotModified(invoice.etag())) {
+                return null;
+            }
             
+            // File-backed resource is streamed from disk, with Range support handled by Spring MVC
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .eTag(invoice.etag())
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .body(new FileSystemResource(invoice.file()));
+                    
+        } catch (UncheckedIOException e) {
+            // Invoice store unavailable: render straight into the response instead of buffering it
+            log.warn("Invoice store unavailable for order {}, streaming directly", orderId, e);
+            // Load the items while the request thread still holds the persistence context
+            order.getOrderItems().forEach(item -> item.getBook().getTitle());
+            StreamingResponseBody body = out -> pdfService.generateInvoice(order, out);
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
                     .contentType(MediaType.APPLICATION_PDF)
-                    .contentLength(pdfBytes.length)
-                    .body(pdfBytes);
+                    .body(body);
                     
         } catch (Exception e) {
             log.error("Error generating invoice PDF for order {}", orderId, e);
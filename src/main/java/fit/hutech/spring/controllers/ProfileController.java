@@ -5,6 +5,7 @@ import fit.hutech.spring.services.AuthenticationService;
 import fit.hutech.spring.services.OrderService;
 import fit.hutech.spring.services.UserService;
 import fit.hutech.spring.services.WishlistService;
+import fit.hutech.spring.utils.ThrottledPasswordEncoder;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Controller;
@@ -60,11 +61,8 @@ public class ProfileController {
         if (userOpt.isEmpty()) {
             return "redirect:/login";
         }
-        User user = userOpt.get();
-
-        user.setEmail(email);
-        user.setPhone(phone);
-        userService.updateUser(user);
+        // The current user comes from the cache, so only its id is passed on
+        userService.updateContact(userOpt.get().getId(), email, phone);
 
         redirectAttributes.addFlashAttribute("success", "Profile updated successfully!");
         return "redirect:/profile";
@@ -86,11 +84,6 @@ public class ProfileController {
         }
         User user = userOpt.get();
 
-        if (!passwordEncoder.matches(currentPassword, user.getPassword())) {
-            redirectAttributes.addFlashAttribute("error", "Current password is incorrect");
-            return "redirect:/profile/password";
-        }
-
         if (!newPassword.equals(confirmPassword)) {
             redirectAttributes.addFlashAttribute("error", "New passwords do not match");
             return "redirect:/profile/password";
@@ -101,8 +94,17 @@ public class ProfileController {
             return "redirect:/profile/password";
         }
 
-        user.setPassword(passwordEncoder.encode(newPassword));
-        userService.updateUser(user);
+        try {
+            if (!passwordEncoder.matches(currentPassword, user.getPassword())) {
+                redirectAttributes.addFlashAttribute("error", "Current password is incorrect");
+                return "redirect:/profile/password";
+            }
+            // Revokes the tokens issued under the old password as well
+            userService.changePassword(user.getId(), newPassword);
+        } catch (ThrottledPasswordEncoder.HashingBusyException e) {
+            redirectAttributes.addFlashAttribute("error", "The server is busy, please try again in a moment");
+            return "redirect:/profile/password";
+        }
 
         redirectAttributes.addFlashAttribute("success", "Password changed successfully!");
         return "redirect:/profile";
@@ -130,13 +132,8 @@ public class ProfileController {
         if (userOpt.isEmpty()) {
             return "redirect:/login";
         }
-        User user = userOpt.get();
-
-        user.setShippingAddress(shippingAddress);
-        user.setShippingCity(shippingCity);
-        user.setShippingPostalCode(shippingPostalCode);
-        user.setShippingCountry(shippingCountry);
-        userService.updateUser(user);
+        userService.updateShippingAddress(userOpt.get().getId(),
+                shippingAddress, shippingCity, shippingPostalCode, shippingCountry);
 
         redirectAttributes.addFlashAttribute("success", "Shipping address updated successfully!");
         return "redirect:/profile";
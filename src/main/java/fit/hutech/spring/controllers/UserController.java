@@ -2,6 +2,7 @@ package fit.hutech.spring.controllers;
 
 import fit.hutech.spring.entities.User;
 import fit.hutech.spring.services.UserService;
+import fit.hutech.spring.utils.ThrottledPasswordEncoder;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
@@ -92,7 +93,12 @@ public class UserController {
             // If LOCAL provider or null, normal duplicate email validation will handle it
         }
         
-        userService.save(user);
+        try {
+            userService.save(user);
+        } catch (ThrottledPasswordEncoder.HashingBusyException e) {
+            model.addAttribute("error", "The server is busy, please try again in a moment");
+            return "user/register";
+        }
         userService.setDefaultRole(user.getUsername());
         return "redirect:/login";
     }
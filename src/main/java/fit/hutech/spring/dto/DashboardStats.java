@@ -0,0 +1,23 @@
+package fit.hutech.spring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DashboardStats {
+    private long totalBooks;
+    private long lowStockBooks;
+    private long outOfStockBooks;
+    private long featuredBooks;
+    private long totalCategories;
+    private long totalUsers;
+    private long pendingOrders;
+    private long processingOrders;
+    private long completedOrders;
+    private double totalRevenue;
+}
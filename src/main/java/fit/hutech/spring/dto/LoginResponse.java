@@ -13,6 +13,7 @@ import java.util.List;
 @Builder
 public class LoginResponse {
     private String token;
+    private String refreshToken;
     private String type;
     private String username;
     private List<String> roles;
@@ -0,0 +1,32 @@
+package fit.hutech.spring.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReportJob {
+
+    public enum Status {
+        PENDING, RUNNING, COMPLETED, FAILED
+    }
+
+    private String id;
+    private String key;
+    private volatile Status status;
+    private Instant submittedAt;
+    private volatile Instant completedAt;
+    private volatile String error;
+    private volatile Path file;
+
+    public boolean isActive() {
+        return status == Status.PENDING || status == Status.RUNNING;
+    }
+}
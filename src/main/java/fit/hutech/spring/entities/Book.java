@@ -1,5 +1,6 @@
 package fit.hutech.spring.entities;
 
+import fit.hutech.spring.utils.SearchTextUtil;
 import fit.hutech.spring.validators.annotations.ValidCategoryId;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -7,6 +8,8 @@ import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 import lombok.*;
 import org.hibernate.Hibernate;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -18,6 +21,8 @@ import java.util.Objects;
 @AllArgsConstructor
 @Builder
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book")
 @Table(name = "book")
 public class Book {
     @Id
@@ -70,6 +75,11 @@ public class Book {
     @Builder.Default
     private Integer stockAlertThreshold = 10;
 
+    // Diacritic-folded title + author backing the FULLTEXT search index
+    @Column(name = "search_text", length = 255)
+    @ToString.Exclude
+    private String searchText;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", referencedColumnName = "id")
     @ValidCategoryId
@@ -81,6 +91,12 @@ public class Book {
     @Builder.Default
     private List<ItemInvoice> itemInvoices = new ArrayList<>();
 
+    @PrePersist
+    @PreUpdate
+    public void refreshSearchText() {
+        searchText = SearchTextUtil.buildSearchText(title, author);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o)
@@ -0,0 +1,37 @@
+package fit.hutech.spring.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "daily_sales_summary",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"summary_date", "status"}))
+public class DailySalesSummary {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "summary_date", nullable = false)
+    private LocalDate summaryDate;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private OrderStatus status;
+    
+    @Column(name = "order_count", nullable = false)
+    @Builder.Default
+    private Long orderCount = 0L;
+    
+    @Column(name = "revenue", nullable = false)
+    @Builder.Default
+    private Double revenue = 0.0;
+}
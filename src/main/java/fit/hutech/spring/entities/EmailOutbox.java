@@ -0,0 +1,76 @@
+package fit.hutech.spring.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_due", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_email_outbox_claim", columnList = "claim_token")
+})
+public class EmailOutbox {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "recipient", nullable = false, length = 255)
+    private String recipient;
+    
+    @Column(name = "subject", nullable = false, length = 255)
+    private String subject;
+    
+    @Column(name = "html_body", nullable = false, columnDefinition = "MEDIUMTEXT")
+    @ToString.Exclude
+    private String htmlBody;
+    
+    @Column(name = "attachment_name", length = 255)
+    private String attachmentName;
+    
+    @Lob
+    @Column(name = "attachment", columnDefinition = "MEDIUMBLOB")
+    @ToString.Exclude
+    private byte[] attachment;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private EmailOutboxStatus status = EmailOutboxStatus.PENDING;
+    
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+    
+    @Column(name = "next_attempt_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    @Builder.Default
+    private Date nextAttemptAt = new Date();
+    
+    // Set while SENDING: identifies the dispatch batch that owns the row
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+    
+    @Column(name = "claimed_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date claimedAt;
+    
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    @Builder.Default
+    private Date createdAt = new Date();
+    
+    @Column(name = "sent_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date sentAt;
+}
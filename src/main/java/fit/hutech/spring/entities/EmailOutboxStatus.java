@@ -0,0 +1,9 @@
+package fit.hutech.spring.entities;
+
+public enum EmailOutboxStatus {
+    PENDING,
+    // Claimed by one dispatcher, which is delivering it
+    SENDING,
+    SENT,
+    FAILED
+}
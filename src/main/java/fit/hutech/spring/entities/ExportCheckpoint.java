@@ -0,0 +1,27 @@
+package fit.hutech.spring.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "export_checkpoints")
+public class ExportCheckpoint {
+    
+    // Name of the export, e.g. "sales-report"
+    @Id
+    @Column(name = "name", length = 50)
+    private String name;
+    
+    // Upper bound of the order window covered by the last successful export
+    @Column(name = "last_exported_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastExportedAt;
+}
@@ -18,7 +18,9 @@ import java.util.Objects;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_order_date", columnList = "order_date")
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,51 @@
+package fit.hutech.spring.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@ToString
+@RequiredArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_hash", columnList = "token_hash", unique = true),
+        @Index(name = "idx_refresh_tokens_username", columnList = "username"),
+        @Index(name = "idx_refresh_tokens_family", columnList = "family")
+})
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // SHA-256 of the opaque token handed to the client; the token itself is never stored
+    @Column(name = "token_hash", nullable = false, length = 64)
+    @ToString.Exclude
+    private String tokenHash;
+
+    @Column(name = "username", nullable = false, length = 50)
+    private String username;
+
+    // Shared by every token rotated from the same login, so a replayed token can revoke the whole chain
+    @Column(name = "family", nullable = false, length = 36)
+    private String family;
+
+    @Column(name = "expires_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date expiresAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    @Builder.Default
+    private Date createdAt = new Date();
+
+    // Set when the token is rotated, logged out or revoked
+    @Column(name = "revoked_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date revokedAt;
+}
@@ -79,6 +79,11 @@ public class User implements UserDetails {
     @Column(name = "locked_until")
     private Date lockedUntil;
 
+    // Bumped to revoke every JWT issued to the user so far; tokens carry the value they were issued with
+    @Column(name = "token_epoch")
+    @Builder.Default
+    private Integer tokenEpoch = 0;
+
     @Column(name = "created_at")
     @Builder.Default
     private Date createdAt = new Date();
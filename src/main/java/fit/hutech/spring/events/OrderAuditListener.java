@@ -0,0 +1,38 @@
+package fit.hutech.spring.events;
+
+import fit.hutech.spring.entities.User;
+import fit.hutech.spring.repositories.IUserRepository;
+import fit.hutech.spring.services.AuditService;
+import fit.hutech.spring.utils.AsyncConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+@RequiredArgsConstructor
+public class OrderAuditListener {
+
+    private static final String ENTITY_TYPE = "Order";
+
+    private final AuditService auditService;
+    private final IUserRepository userRepository;
+
+    @Async(AsyncConfig.EVENT_EXECUTOR)
+    @TransactionalEventListener
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        auditService.log(resolve(event.performedBy()), AuditService.ACTION_ORDER_STATUS_CHANGED, ENTITY_TYPE,
+                event.orderId(), "Order " + event.orderNumber() + ": " + event.oldStatus() + " -> " + event.newStatus());
+    }
+
+    @Async(AsyncConfig.EVENT_EXECUTOR)
+    @TransactionalEventListener
+    public void onOrderCancelled(OrderCancelledEvent event) {
+        auditService.log(resolve(event.performedBy()), AuditService.ACTION_ORDER_CANCELLED, ENTITY_TYPE,
+                event.orderId(), "Order " + event.orderNumber() + " cancelled from " + event.previousStatus());
+    }
+
+    private User resolve(String username) {
+        return username != null ? userRepository.findByUsername(username).orElse(null) : null;
+    }
+}
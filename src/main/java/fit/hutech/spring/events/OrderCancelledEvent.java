@@ -0,0 +1,20 @@
+package fit.hutech.spring.events;
+
+import fit.hutech.spring.entities.Order;
+import fit.hutech.spring.entities.OrderStatus;
+
+import java.util.Date;
+
+// Published instead of OrderStatusChangedEvent when an order moves to CANCELLED
+public record OrderCancelledEvent(Long orderId, String orderNumber, Date orderDate, Double total,
+                                  OrderStatus previousStatus, String performedBy, boolean bulk) {
+
+    public static OrderCancelledEvent of(Order order, OrderStatus previousStatus, String performedBy) {
+        return of(order, previousStatus, performedBy, false);
+    }
+
+    public static OrderCancelledEvent of(Order order, OrderStatus previousStatus, String performedBy, boolean bulk) {
+        return new OrderCancelledEvent(order.getId(), order.getOrderNumber(), order.getOrderDate(),
+                order.getTotal(), previousStatus, performedBy, bulk);
+    }
+}
@@ -0,0 +1,16 @@
+package fit.hutech.spring.events;
+
+import fit.hutech.spring.entities.Order;
+import fit.hutech.spring.entities.OrderStatus;
+
+import java.util.Date;
+
+// Published inside the checkout transaction; listeners only see it once that transaction has committed
+public record OrderCreatedEvent(Long orderId, String orderNumber, Date orderDate, Double total,
+                                OrderStatus status, String performedBy) {
+
+    public static OrderCreatedEvent of(Order order, String performedBy) {
+        return new OrderCreatedEvent(order.getId(), order.getOrderNumber(), order.getOrderDate(),
+                order.getTotal(), order.getStatus(), performedBy);
+    }
+}
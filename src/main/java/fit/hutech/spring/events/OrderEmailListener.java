@@ -0,0 +1,64 @@
+package fit.hutech.spring.events;
+
+import fit.hutech.spring.entities.Order;
+import fit.hutech.spring.entities.OrderStatus;
+import fit.hutech.spring.repositories.IOrderRepository;
+import fit.hutech.spring.services.EmailService;
+import fit.hutech.spring.utils.AsyncConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+// Customer notifications for the order lifecycle; each mail is rendered and queued in the outbox
+@Component
+@RequiredArgsConstructor
+public class OrderEmailListener {
+
+    private final IOrderRepository orderRepository;
+    private final EmailService emailService;
+
+    @Async(AsyncConfig.EVENT_EXECUTOR)
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        orderRepository.findById(event.orderId()).ifPresent(emailService::sendOrderConfirmationEmail);
+    }
+
+    @Async(AsyncConfig.EVENT_EXECUTOR)
+    @TransactionalEventListener(condition = "!#event.bulk()")
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        orderRepository.findById(event.orderId()).ifPresent(order -> {
+            if (event.newStatus() == OrderStatus.SHIPPED) {
+                emailService.sendShippingNotificationEmail(order);
+            } else {
+                emailService.sendOrderStatusUpdateEmail(order);
+            }
+        });
+    }
+
+    @Async(AsyncConfig.EVENT_EXECUTOR)
+    @TransactionalEventListener(condition = "!#event.bulk()")
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onOrderCancelled(OrderCancelledEvent event) {
+        orderRepository.findById(event.orderId()).ifPresent(emailService::sendOrderStatusUpdateEmail);
+    }
+
+    // Bulk updates skip the per-order mails above and notify every customer in one rendered batch
+    @Async(AsyncConfig.EVENT_EXECUTOR)
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onOrderStatusBulkChanged(OrderStatusBulkChangedEvent event) {
+        List<Order> orders = orderRepository.findForInvoicesByIdIn(event.orderIds());
+        if (event.newStatus() == OrderStatus.SHIPPED) {
+            emailService.sendShippingNotificationEmails(orders);
+        } else {
+            emailService.sendOrderStatusUpdateEmails(orders);
+        }
+    }
+}
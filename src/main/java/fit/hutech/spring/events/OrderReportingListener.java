@@ -0,0 +1,45 @@
+package fit.hutech.spring.events;
+
+import fit.hutech.spring.entities.OrderStatus;
+import fit.hutech.spring.services.InvoiceService;
+import fit.hutech.spring.services.SalesSummaryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Keeps derived reporting data in step with orders. The rollup is updated just before the order commits, in
+// the same transaction, so it can neither be lost nor race the nightly reconcile. Only the invoice
+// pre-render, which is best effort, happens after commit.
+@Component
+@RequiredArgsConstructor
+public class OrderReportingListener {
+
+    private final SalesSummaryService salesSummaryService;
+    private final InvoiceService invoiceService;
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        salesSummaryService.recordOrderCreated(event.orderDate(), event.status(), event.total());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onOrderStatusChanged(OrderStatusChangedEvent event) {
+        salesSummaryService.recordStatusChange(event.orderDate(), event.total(), event.oldStatus(), event.newStatus());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onOrderCancelled(OrderCancelledEvent event) {
+        salesSummaryService.recordStatusChange(event.orderDate(), event.total(), event.previousStatus(),
+                OrderStatus.CANCELLED);
+    }
+
+    // Delivered orders no longer change, so their invoice can be rendered ahead of the first download.
+    // prerender only queues the work on the invoice executor.
+    @TransactionalEventListener
+    public void onOrderDelivered(OrderStatusChangedEvent event) {
+        if (event.newStatus() == OrderStatus.DELIVERED) {
+            invoiceService.prerender(event.orderId());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package fit.hutech.spring.events;
+
+import fit.hutech.spring.entities.OrderStatus;
+
+import java.util.List;
+
+// Published once per bulk status update, after the per-order events, so customers are notified in one batch
+public record OrderStatusBulkChangedEvent(List<Long> orderIds, OrderStatus newStatus, String performedBy) {
+}
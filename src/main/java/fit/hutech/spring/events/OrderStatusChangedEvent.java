@@ -0,0 +1,22 @@
+package fit.hutech.spring.events;
+
+import fit.hutech.spring.entities.Order;
+import fit.hutech.spring.entities.OrderStatus;
+
+import java.util.Date;
+
+// bulk is set when the change is part of a bulk update, whose customer emails go out together with
+// OrderStatusBulkChangedEvent instead of one by one
+public record OrderStatusChangedEvent(Long orderId, String orderNumber, Date orderDate, Double total,
+                                      OrderStatus oldStatus, OrderStatus newStatus, String performedBy,
+                                      boolean bulk) {
+
+    public static OrderStatusChangedEvent of(Order order, OrderStatus oldStatus, String performedBy) {
+        return of(order, oldStatus, performedBy, false);
+    }
+
+    public static OrderStatusChangedEvent of(Order order, OrderStatus oldStatus, String performedBy, boolean bulk) {
+        return new OrderStatusChangedEvent(order.getId(), order.getOrderNumber(), order.getOrderDate(),
+                order.getTotal(), oldStatus, order.getStatus(), performedBy, bulk);
+    }
+}
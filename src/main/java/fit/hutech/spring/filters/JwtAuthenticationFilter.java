@@ -2,20 +2,25 @@ package fit.hutech.spring.filters;
 
 import fit.hutech.spring.services.UserService;
 import fit.hutech.spring.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
@@ -24,6 +29,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserService userService;
+    private final WebAuthenticationDetailsSource detailsSource = new WebAuthenticationDetailsSource();
+
+    // Build the principal from the verified claims alone, without loading the user
+    @Value("${jwt.stateless:false}")
+    private boolean stateless;
 
     @Override
     protected void doFilterInternal(
@@ -47,25 +57,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             
             String jwt = authHeader.substring(7);
             try {
-                String username = jwtUtil.extractUsername(jwt);
-                UserDetails userDetails = userService.loadUserByUsername(username);
-                
-                if (jwtUtil.validateToken(jwt, userDetails)) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                    log.debug("JWT authenticated user: {}", username);
-                } else {
-                    log.warn("Invalid JWT token for {}", requestPath);
-                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                    response.setContentType("application/json");
-                    response.getWriter().write("{\"error\":\"Invalid token\",\"message\":\"JWT token is invalid or expired\"}");
-                    return;
-                }
+                authenticate(jwt, request);
             } catch (Exception e) {
                 log.warn("JWT authentication failed for {}: {}", requestPath, e.getMessage());
                 response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -78,19 +70,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             if (authHeader != null && authHeader.startsWith("Bearer ")) {
                 String jwt = authHeader.substring(7);
                 try {
-                    String username = jwtUtil.extractUsername(jwt);
-                    if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                        UserDetails userDetails = userService.loadUserByUsername(username);
-                        if (jwtUtil.validateToken(jwt, userDetails)) {
-                            UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                                    userDetails,
-                                    null,
-                                    userDetails.getAuthorities()
-                            );
-                            authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                            SecurityContextHolder.getContext().setAuthentication(authToken);
-                            log.debug("JWT authenticated user: {}", username);
-                        }
+                    if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                        authenticate(jwt, request);
                     }
                 } catch (Exception e) {
                     log.warn("JWT authentication failed: {}", e.getMessage());
@@ -100,4 +81,32 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    // One verification per request (cached per token) and, unless stateless, a cached user lookup;
+    // throws if the token is invalid or revoked
+    private void authenticate(String jwt, HttpServletRequest request) {
+        Claims claims = jwtUtil.verify(jwt);
+        UserDetails userDetails = stateless
+                ? fromClaims(claims)
+                : userService.loadUserByUsername(claims.getSubject());
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                userDetails,
+                null,
+                userDetails.getAuthorities()
+        );
+        authToken.setDetails(detailsSource.buildDetails(request));
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+        log.debug("JWT authenticated user: {}", claims.getSubject());
+    }
+
+    // Disabled, demoted or re-passworded users are cut off by the token deny-list instead of a DB read
+    private static UserDetails fromClaims(Claims claims) {
+        List<?> roles = claims.get("roles", List.class);
+        return User.withUsername(claims.getSubject())
+                .password("")
+                .authorities(roles == null ? List.of() : roles.stream()
+                        .map(role -> new SimpleGrantedAuthority(String.valueOf(role)))
+                        .toList())
+                .build();
+    }
 }
@@ -1,6 +1,7 @@
 package fit.hutech.spring.handlers;
 
 import fit.hutech.spring.services.UserService;
+import fit.hutech.spring.utils.ThrottledPasswordEncoder;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -36,6 +37,9 @@ public class CustomAuthenticationFailureHandler extends SimpleUrlAuthenticationF
         } else if (exception instanceof DisabledException) {
             errorMessage = "disabled";
             log.warn("Login attempt for disabled account: {}", username);
+        } else if (exception instanceof ThrottledPasswordEncoder.HashingBusyException) {
+            // Shed by the login executor; not the user's fault, so no failed attempt is counted
+            errorMessage = "busy";
         } else if (exception instanceof BadCredentialsException) {
             // Increment failed login attempts
             if (username != null && !username.isEmpty()) {
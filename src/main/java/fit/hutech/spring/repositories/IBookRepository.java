@@ -1,13 +1,20 @@
 package fit.hutech.spring.repositories;
 
 import fit.hutech.spring.entities.Book;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface IBookRepository extends 
@@ -17,14 +24,26 @@ public interface IBookRepository extends
         return findAll(PageRequest.of(pageNo, pageSize, Sort.by(sortBy))).getContent();
     }
     
+    // SELECT ... FOR UPDATE: the row stays locked until the stock or price change commits
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Book b WHERE b.id = :id")
+    Optional<Book> findByIdForUpdate(Long id);
+    
+    // Keyset page: seeks past the last seen id instead of skipping OFFSET rows
+    List<Book> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
     @Query("""
             SELECT b FROM Book b
             WHERE b.enabled = true
             AND (b.title LIKE %?1%
             OR b.author LIKE %?1%
             OR b.category.name LIKE %?1%)
+            ORDER BY b.id DESC
             """)
-    List<Book> searchBook(String keyword);
+    List<Book> searchBook(String keyword, Pageable pageable);
+    
+    @Query("SELECT b.id, b.title, b.author FROM Book b WHERE b.enabled = true")
+    List<Object[]> findSuggestionSources();
     
     List<Book> findByFeaturedTrue();
     
@@ -32,10 +51,20 @@ public interface IBookRepository extends
     
     List<Book> findByStockLessThanEqual(Integer stock);
     
-    @Query("SELECT b FROM Book b WHERE b.enabled = true AND b.featured = true ORDER BY b.id DESC LIMIT 8")
+    List<Book> findTop5ByStockLessThanEqualOrderByStockAsc(Integer stock);
+    
+    List<Book> findTop10ByOrderByStockDesc();
+    
+    long countByStockLessThanEqual(Integer stock);
+    
+    long countByEnabledTrueAndFeaturedTrue();
+    
+    @Query("SELECT b FROM Book b LEFT JOIN FETCH b.category WHERE b.enabled = true AND b.featured = true ORDER BY b.id DESC LIMIT 8")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Book> findFeaturedBooks();
     
     @Query("SELECT b FROM Book b WHERE b.enabled = true AND b.category.id = ?1")
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     List<Book> findByCategory(Long categoryId);
     
     @Query("SELECT b FROM Book b WHERE b.enabled = true AND b.price BETWEEN ?1 AND ?2")
@@ -44,7 +73,71 @@ public interface IBookRepository extends
     @Query("SELECT b FROM Book b WHERE b.publicationYear = ?1")
     List<Book> findByPublicationYear(Integer year);
     
-    @Query("""
+    // Each branch is capped before the union, so a broad term never materialises the whole match set.
+    // Matching category ids come from the small category table; books are then found via category_id.
+    @Query(nativeQuery = true, value = """
+            SELECT b.* FROM book b
+            JOIN (
+                (SELECT id, MATCH(search_text) AGAINST (:terms IN BOOLEAN MODE) AS score
+                 FROM book
+                 WHERE MATCH(search_text) AGAINST (:terms IN BOOLEAN MODE) AND enabled = 1
+                 ORDER BY score DESC
+                 LIMIT :limit)
+                UNION ALL
+                (SELECT bc.id, 0 AS score
+                 FROM book bc
+                 WHERE bc.enabled = 1
+                 AND bc.category_id IN (SELECT c.id FROM category c WHERE c.name LIKE CONCAT('%', :keyword, '%'))
+                 ORDER BY bc.id DESC
+                 LIMIT :limit)
+            ) m ON m.id = b.id
+            GROUP BY b.id
+            ORDER BY MAX(m.score) DESC, b.id DESC
+            LIMIT :limit
+            """)
+    List<Book> fullTextSearch(
+            @org.springframework.data.repository.query.Param("terms") String terms,
+            @org.springframework.data.repository.query.Param("keyword") String keyword,
+            @org.springframework.data.repository.query.Param("limit") int limit
+    );
+    
+    @Query(nativeQuery = true, value = """
+            SELECT b.* FROM book b
+            WHERE b.enabled = 1
+            AND MATCH(b.search_text) AGAINST (:terms IN BOOLEAN MODE)
+            AND (:categoryId IS NULL OR b.category_id = :categoryId)
+            AND (:minPrice IS NULL OR b.price >= :minPrice)
+            AND (:maxPrice IS NULL OR b.price <= :maxPrice)
+            AND (:inStock IS NULL OR :inStock = false OR b.stock > 0)
+            ORDER BY 
+                CASE WHEN :sortBy = 'priceAsc' THEN b.price END ASC,
+                CASE WHEN :sortBy = 'priceDesc' THEN b.price END DESC,
+                CASE WHEN :sortBy = 'titleAsc' THEN b.title END ASC,
+                CASE WHEN :sortBy = 'titleDesc' THEN b.title END DESC,
+                CASE WHEN :sortBy = 'newest' THEN b.id END DESC,
+                MATCH(b.search_text) AGAINST (:terms IN BOOLEAN MODE) DESC,
+                b.id DESC
+            """,
+            countQuery = """
+            SELECT COUNT(*) FROM book b
+            WHERE b.enabled = 1
+            AND MATCH(b.search_text) AGAINST (:terms IN BOOLEAN MODE)
+            AND (:categoryId IS NULL OR b.category_id = :categoryId)
+            AND (:minPrice IS NULL OR b.price >= :minPrice)
+            AND (:maxPrice IS NULL OR b.price <= :maxPrice)
+            AND (:inStock IS NULL OR :inStock = false OR b.stock > 0)
+            """)
+    Page<Book> fullTextAdvancedSearch(
+            @org.springframework.data.repository.query.Param("terms") String terms,
+            @org.springframework.data.repository.query.Param("categoryId") Long categoryId,
+            @org.springframework.data.repository.query.Param("minPrice") Double minPrice,
+            @org.springframework.data.repository.query.Param("maxPrice") Double maxPrice,
+            @org.springframework.data.repository.query.Param("inStock") Boolean inStock,
+            @org.springframework.data.repository.query.Param("sortBy") String sortBy,
+            Pageable pageable
+    );
+    
+    @Query(value = """
             SELECT b FROM Book b
             WHERE b.enabled = true
             AND (:keyword IS NULL OR b.title LIKE %:keyword% OR b.author LIKE %:keyword%)
@@ -59,13 +152,23 @@ public interface IBookRepository extends
                 CASE WHEN :sortBy = 'titleDesc' THEN b.title END DESC,
                 CASE WHEN :sortBy = 'newest' THEN b.id END DESC,
                 b.id DESC
+            """,
+            countQuery = """
+            SELECT COUNT(b) FROM Book b
+            WHERE b.enabled = true
+            AND (:keyword IS NULL OR b.title LIKE %:keyword% OR b.author LIKE %:keyword%)
+            AND (:categoryId IS NULL OR b.category.id = :categoryId)
+            AND (:minPrice IS NULL OR b.price >= :minPrice)
+            AND (:maxPrice IS NULL OR b.price <= :maxPrice)
+            AND (:inStock IS NULL OR (:inStock = true AND b.stock > 0) OR (:inStock = false))
             """)
-    List<Book> advancedSearch(
+    Page<Book> advancedSearch(
             @org.springframework.data.repository.query.Param("keyword") String keyword,
             @org.springframework.data.repository.query.Param("categoryId") Long categoryId,
             @org.springframework.data.repository.query.Param("minPrice") Double minPrice,
             @org.springframework.data.repository.query.Param("maxPrice") Double maxPrice,
             @org.springframework.data.repository.query.Param("inStock") Boolean inStock,
-            @org.springframework.data.repository.query.Param("sortBy") String sortBy
+            @org.springframework.data.repository.query.Param("sortBy") String sortBy,
+            Pageable pageable
     );
 }
\ No newline at end of file
@@ -1,9 +1,23 @@
 package fit.hutech.spring.repositories;
 
 import fit.hutech.spring.entities.Category;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
 @Repository
 public interface ICategoryRepository extends
 JpaRepository<Category, Long> {
+    
+    // Served from the query cache; Hibernate invalidates it on any category write
+    @Override
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    List<Category> findAll();
+    
+    @Query("SELECT c.id, COUNT(b) FROM Category c LEFT JOIN c.books b GROUP BY c.id")
+    List<Object[]> countBooksByCategory();
 }
\ No newline at end of file
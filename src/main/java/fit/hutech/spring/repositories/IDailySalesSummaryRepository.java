@@ -0,0 +1,70 @@
+package fit.hutech.spring.repositories;
+
+import fit.hutech.spring.entities.DailySalesSummary;
+import fit.hutech.spring.entities.OrderStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface IDailySalesSummaryRepository extends JpaRepository<DailySalesSummary, Long> {
+    
+    // Atomic upsert so concurrent checkouts never lose an increment. The day is taken with the database's
+    // DATE(), exactly as the rebuild below does, so both paths agree whatever the JVM time zone is.
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO daily_sales_summary (summary_date, status, order_count, revenue)
+            VALUES (DATE(:orderDate), :status, :orderCount, :revenue)
+            ON DUPLICATE KEY UPDATE
+                order_count = order_count + :orderCount,
+                revenue = revenue + :revenue
+            """)
+    void increment(@Param("orderDate") Date orderDate,
+                   @Param("status") String status,
+                   @Param("orderCount") long orderCount,
+                   @Param("revenue") double revenue);
+    
+    // Overwrites every row with the figures from the orders table. Under REPEATABLE READ the SELECT locks the
+    // order rows it reads, so order writes wait for the rebuild (or it waits for them) instead of racing it.
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO daily_sales_summary (summary_date, status, order_count, revenue)
+            SELECT DATE(o.order_date), o.status, COUNT(*), COALESCE(SUM(o.total), 0)
+            FROM orders o
+            GROUP BY DATE(o.order_date), o.status
+            ON DUPLICATE KEY UPDATE
+                order_count = VALUES(order_count),
+                revenue = VALUES(revenue)
+            """)
+    int rebuildFromOrders();
+    
+    // Zeroes the rows whose day and status no longer have any orders, once the rebuild has refreshed the rest
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE daily_sales_summary s
+            LEFT JOIN (SELECT DISTINCT DATE(order_date) AS order_day, status FROM orders) o
+                ON o.order_day = s.summary_date AND o.status = s.status
+            SET s.order_count = 0, s.revenue = 0
+            WHERE o.order_day IS NULL AND (s.order_count <> 0 OR s.revenue <> 0)
+            """)
+    int clearOrphanedRows();
+    
+    @Query("SELECT COALESCE(SUM(s.revenue), 0) FROM DailySalesSummary s WHERE s.status <> ?1")
+    Double sumRevenueExcludingStatus(OrderStatus excluded);
+    
+    @Query("SELECT COALESCE(SUM(s.revenue), 0) FROM DailySalesSummary s " +
+           "WHERE s.summaryDate BETWEEN ?1 AND ?2 AND s.status <> ?3")
+    Double sumRevenueBetweenExcludingStatus(LocalDate firstDay, LocalDate lastDay, OrderStatus excluded);
+    
+    @Query("SELECT COALESCE(SUM(s.orderCount), 0) FROM DailySalesSummary s WHERE s.status = ?1")
+    Long sumOrderCountByStatus(OrderStatus status);
+    
+    @Query("SELECT s.status, SUM(s.orderCount) FROM DailySalesSummary s GROUP BY s.status")
+    List<Object[]> sumOrderCountGroupByStatus();
+}
@@ -0,0 +1,43 @@
+package fit.hutech.spring.repositories;
+
+import fit.hutech.spring.entities.EmailOutbox;
+import fit.hutech.spring.entities.EmailOutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.List;
+
+@Repository
+public interface IEmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+    
+    // Rows locked by another instance's claim are skipped rather than waited for
+    @Query(nativeQuery = true, value = """
+            SELECT id FROM email_outbox
+            WHERE status = 'PENDING' AND next_attempt_at <= :now
+            ORDER BY id ASC
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """)
+    List<Long> findDueIdsForUpdate(@Param("now") Date now, @Param("limit") int limit);
+    
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = ?3, e.claimToken = ?2, e.claimedAt = ?4 " +
+           "WHERE e.id IN ?1 AND e.status = ?5")
+    int claim(List<Long> ids, String claimToken, EmailOutboxStatus claimed, Date now, EmailOutboxStatus pending);
+    
+    List<EmailOutbox> findByClaimTokenOrderByIdAsc(String claimToken);
+    
+    // Hands the rows of a dispatcher that died mid-batch back to the queue
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = ?2, e.claimToken = NULL, e.claimedAt = NULL " +
+           "WHERE e.status = ?1 AND e.claimedAt < ?3")
+    int releaseClaimsBefore(EmailOutboxStatus claimed, EmailOutboxStatus pending, Date cutoff);
+    
+    @Modifying
+    @Query("DELETE FROM EmailOutbox e WHERE e.status = ?1 AND e.sentAt < ?2")
+    int deleteSentBefore(EmailOutboxStatus status, Date cutoff);
+}
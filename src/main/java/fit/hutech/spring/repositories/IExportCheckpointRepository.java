@@ -0,0 +1,9 @@
+package fit.hutech.spring.repositories;
+
+import fit.hutech.spring.entities.ExportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IExportCheckpointRepository extends JpaRepository<ExportCheckpoint, String> {
+}
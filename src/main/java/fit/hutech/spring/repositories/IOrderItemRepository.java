@@ -3,6 +3,8 @@ package fit.hutech.spring.repositories;
 import fit.hutech.spring.entities.Book;
 import fit.hutech.spring.entities.Order;
 import fit.hutech.spring.entities.OrderItem;
+import fit.hutech.spring.viewmodels.TopSellerVm;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -16,10 +18,11 @@ public interface IOrderItemRepository extends JpaRepository<OrderItem, Long> {
     
     List<OrderItem> findByBook(Book book);
     
-    @Query("SELECT oi.book.id, SUM(oi.quantity) as totalSold FROM OrderItem oi " +
-           "JOIN oi.order o WHERE o.status != 'CANCELLED' " +
-           "GROUP BY oi.book.id ORDER BY totalSold DESC")
-    List<Object[]> findTopSellingBooks();
+    // Title and author come from the same join, so the report needs no per-row book lookup
+    @Query("SELECT new fit.hutech.spring.viewmodels.TopSellerVm(b.id, b.title, b.author, SUM(oi.quantity)) " +
+           "FROM OrderItem oi JOIN oi.book b JOIN oi.order o WHERE o.status != 'CANCELLED' " +
+           "GROUP BY b.id, b.title, b.author ORDER BY SUM(oi.quantity) DESC")
+    List<TopSellerVm> findTopSellingBooks(Pageable pageable);
     
     @Query("SELECT SUM(oi.quantity) FROM OrderItem oi WHERE oi.book = ?1")
     Long getTotalSoldByBook(Book book);
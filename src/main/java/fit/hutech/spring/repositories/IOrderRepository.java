@@ -3,15 +3,20 @@ package fit.hutech.spring.repositories;
 import fit.hutech.spring.entities.Order;
 import fit.hutech.spring.entities.OrderStatus;
 import fit.hutech.spring.entities.User;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface IOrderRepository extends JpaRepository<Order, Long> {
@@ -22,11 +27,37 @@ public interface IOrderRepository extends JpaRepository<Order, Long> {
     
     Optional<Order> findByOrderNumber(String orderNumber);
     
+    @EntityGraph(attributePaths = "user")
     Page<Order> findAllByOrderByOrderDateDesc(Pageable pageable);
     
     @Query("SELECT o FROM Order o WHERE o.orderDate BETWEEN ?1 AND ?2")
     List<Order> findByDateRange(Date startDate, Date endDate);
     
+    // Forward-only cursor for exports; MySQL streams rows one by one with fetch size MIN_VALUE
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "-2147483648"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT o FROM Order o JOIN FETCH o.user " +
+           "WHERE (:startDate IS NULL OR o.orderDate >= :startDate) " +
+           "AND (:endDate IS NULL OR o.orderDate <= :endDate) " +
+           "ORDER BY o.orderDate ASC")
+    Stream<Order> streamForExport(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
+    
+    // Lightweight listing for bulk invoice export: [id, orderNumber]
+    @Query("SELECT o.id, o.orderNumber FROM Order o WHERE o.status = :status " +
+           "AND (:startDate IS NULL OR o.orderDate >= :startDate) " +
+           "AND (:endDate IS NULL OR o.orderDate <= :endDate) " +
+           "ORDER BY o.orderDate ASC")
+    List<Object[]> findIdAndNumberByStatusAndDateRange(@Param("status") OrderStatus status,
+                                                       @Param("startDate") Date startDate,
+                                                       @Param("endDate") Date endDate);
+    
+    // Everything an invoice prints, in one round trip per batch
+    @Query("SELECT DISTINCT o FROM Order o JOIN FETCH o.user " +
+           "LEFT JOIN FETCH o.orderItems i LEFT JOIN FETCH i.book WHERE o.id IN :ids")
+    List<Order> findForInvoicesByIdIn(@Param("ids") List<Long> ids);
+    
     @Query("SELECT COUNT(o) FROM Order o WHERE o.status = ?1")
     Long countByStatus(OrderStatus status);
     
@@ -35,4 +66,12 @@ public interface IOrderRepository extends JpaRepository<Order, Long> {
     
     @Query("SELECT SUM(o.total) FROM Order o WHERE o.orderDate BETWEEN ?1 AND ?2 AND o.status != 'CANCELLED'")
     Double getRevenueByDateRange(Date startDate, Date endDate);
+    
+    // Half-open [from, until), for the partial days around a rollup range
+    @Query("SELECT SUM(o.total) FROM Order o WHERE o.orderDate >= ?1 AND o.orderDate < ?2 AND o.status != 'CANCELLED'")
+    Double getRevenueFromUntil(Date from, Date until);
+    
+    // [status, count] of the orders placed in the window
+    @Query("SELECT o.status, COUNT(o) FROM Order o WHERE o.orderDate BETWEEN ?1 AND ?2 GROUP BY o.status")
+    List<Object[]> countGroupByStatusBetween(Date startDate, Date endDate);
 }
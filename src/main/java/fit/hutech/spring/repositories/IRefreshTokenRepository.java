@@ -0,0 +1,35 @@
+package fit.hutech.spring.repositories;
+
+import fit.hutech.spring.entities.RefreshToken;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Date;
+import java.util.Optional;
+
+@Repository
+public interface IRefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    // Locked so two concurrent refreshes with the same token cannot both rotate it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM RefreshToken t WHERE t.tokenHash = ?1")
+    Optional<RefreshToken> findByTokenHashForUpdate(String tokenHash);
+
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = ?2 WHERE t.family = ?1 AND t.revokedAt IS NULL")
+    int revokeFamily(String family, Date now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = ?2 WHERE t.username = ?1 AND t.revokedAt IS NULL")
+    int revokeAllForUser(String username, Date now);
+
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < ?1")
+    int deleteExpiredBefore(Date cutoff);
+}
@@ -2,6 +2,7 @@ package fit.hutech.spring.repositories;
 
 import fit.hutech.spring.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
@@ -9,4 +10,7 @@ import java.util.Optional;
 public interface IUserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
+
+    @Query("SELECT u.tokenEpoch FROM User u WHERE u.username = ?1")
+    Optional<Integer> findTokenEpochByUsername(String username);
 }
\ No newline at end of file
@@ -1,64 +1,119 @@
 package fit.hutech.spring.services;
 
 import fit.hutech.spring.entities.User;
+import fit.hutech.spring.utils.CacheConfig;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import java.util.HashSet;
 import java.util.Optional;
 
+// Resolves the signed-in user once per request (memoised in the request attributes) and keeps a detached
+// copy in the short-lived CURRENT_USERS cache, so most requests need no user query at all. UserService
+// evicts that cache whenever it changes a user.
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AuthenticationService {
+    private static final String REQUEST_ATTRIBUTE = AuthenticationService.class.getName() + ".currentUser.";
+
     private final UserService userService;
-    
+    private final CacheManager cacheManager;
+
     public Optional<User> getCurrentUser() {
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || !auth.isAuthenticated()) {
             log.debug("No authentication found or not authenticated");
             return Optional.empty();
         }
-        
-        Object principal = auth.getPrincipal();
-        log.debug("Principal type: {}", principal.getClass().getName());
-        
-        if (principal instanceof UserDetails) {
-            // Form login - UserDetails
-            String username = ((UserDetails) principal).getUsername();
-            log.debug("Form login user: {}", username);
-            return userService.findByUsername(username);
-        } else if (principal instanceof OAuth2User) {
+
+        String key = principalKey(auth.getPrincipal());
+        if (key == null) {
+            log.warn("Unknown principal type: {}", auth.getPrincipal().getClass().getName());
+            return Optional.empty();
+        }
+
+        // Every call within a request returns the same instance, as with the open-in-view session before
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null && request.getAttribute(REQUEST_ATTRIBUTE + key, RequestAttributes.SCOPE_REQUEST) instanceof User memo) {
+            return Optional.of(memo);
+        }
+
+        Optional<User> user = resolve(key);
+        if (request != null) {
+            user.ifPresent(u -> request.setAttribute(REQUEST_ATTRIBUTE + key, u, RequestAttributes.SCOPE_REQUEST));
+        }
+        return user;
+    }
+
+    public boolean isAuthenticated() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.isAuthenticated() && !(auth.getPrincipal() instanceof String);
+    }
+
+    static String byUsername(String username) {
+        return "username:" + username;
+    }
+
+    static String byEmail(String email) {
+        return "email:" + email;
+    }
+
+    private static String principalKey(Object principal) {
+        if (principal instanceof UserDetails userDetails) {
+            // Form login and JWT
+            return byUsername(userDetails.getUsername());
+        } else if (principal instanceof OAuth2User oauth2User) {
             // OAuth2 login (GitHub, Facebook, Google)
-            OAuth2User oauth2User = (OAuth2User) principal;
             String email = oauth2User.getAttribute("email");
-            
+
             // GitHub might not have email, use login@github.oauth
             if (email == null) {
                 String login = oauth2User.getAttribute("login");
                 if (login != null) {
                     email = login + "@github.oauth";
-                    log.debug("GitHub user (no email): {} -> {}", login, email);
                 }
-            } else {
-                log.debug("OAuth2 user email: {}", email);
-            }
-            
-            if (email != null) {
-                return userService.findByEmail(email);
             }
+            return email != null ? byEmail(email) : null;
         }
-        
-        log.warn("Unknown principal type: {}", principal.getClass().getName());
-        return Optional.empty();
+        return null;
     }
-    
-    public boolean isAuthenticated() {
-        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-        return auth != null && auth.isAuthenticated() && !(auth.getPrincipal() instanceof String);
+
+    // Callers may modify the returned user, so the cache only ever hands out copies of its entry
+    private Optional<User> resolve(String key) {
+        Cache cache = cacheManager.getCache(CacheConfig.CURRENT_USERS);
+        User cached = cache != null ? cache.get(key, User.class) : null;
+        if (cached != null) {
+            return Optional.of(copyOf(cached));
+        }
+
+        log.debug("Loading current user for {}", key);
+        Optional<User> user = key.startsWith("email:")
+                ? userService.findByEmail(key.substring("email:".length()))
+                : userService.findByUsername(key.substring("username:".length()));
+        if (cache != null) {
+            user.ifPresent(u -> cache.put(key, copyOf(u)));
+        }
+        return user;
+    }
+
+    // The lazy invoices collection is left out: it belongs to the session that loaded the user and must not be
+    // shared between requests. Nothing resolved through here reads it.
+    private static User copyOf(User user) {
+        User copy = new User();
+        BeanUtils.copyProperties(user, copy, "invoices");
+        copy.setInvoices(new HashSet<>());
+        copy.setRoles(new HashSet<>(user.getRoles()));
+        return copy;
     }
 }
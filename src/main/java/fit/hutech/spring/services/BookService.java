@@ -6,9 +6,22 @@ import fit.hutech.spring.entities.User;
 import fit.hutech.spring.repositories.IBookRepository;
 import fit.hutech.spring.repositories.IOrderItemRepository;
 import fit.hutech.spring.repositories.IPriceHistoryRepository;
+import fit.hutech.spring.utils.BookSearchIndexInitializer;
+import fit.hutech.spring.utils.CacheConfig;
+import fit.hutech.spring.utils.SearchTextUtil;
+import fit.hutech.spring.viewmodels.BookGetVm;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 
 import org.antlr.v4.runtime.misc.NotNull;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,11 +31,19 @@ import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
-@Transactional(isolation = Isolation.SERIALIZABLE, rollbackFor = { Exception.class, Throwable.class })
+// Catalog reads run read-only at READ COMMITTED so they never take shared locks; writes opt in below and
+// stock and price changes lock just the affected row
+@Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
 public class BookService {
     private final IBookRepository bookRepository;
     private final IOrderItemRepository orderItemRepository;
     private final IPriceHistoryRepository priceHistoryRepository;
+    private final BookSearchIndexInitializer searchIndex;
+    private final BookSuggestionService suggestionService;
+    private final EntityManager entityManager;
+
+    @Value("${app.search.max-results:100}")
+    private int maxSearchResults;
 
     public List<Book> getAllBooks(Integer pageNo,
             Integer pageSize,
@@ -31,22 +52,54 @@ public class BookService {
         return bookRepository.findAllBooks(pageNo, pageSize, sortBy);
     }
 
+    public List<Book> getBooksAfter(Long afterId, int limit) {
+        return bookRepository.findByIdGreaterThanOrderByIdAsc(
+                afterId != null ? afterId : 0L, PageRequest.of(0, limit));
+    }
+
     public Optional<Book> getBookById(Long id) {
         return bookRepository.findById(id);
     }
 
+    @Cacheable(value = CacheConfig.BOOKS, key = "#id", unless = "#result == null")
+    public Optional<BookGetVm> getBookVmById(Long id) {
+        return bookRepository.findById(id).map(BookGetVm::from);
+    }
+
+    @CacheEvict(value = CacheConfig.FEATURED_BOOKS, allEntries = true)
+    @Transactional(rollbackFor = { Exception.class, Throwable.class })
     public void addBook(Book book) {
         bookRepository.save(book);
+        suggestionService.indexBook(book);
     }
 
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.BOOKS, key = "#book.id"),
+            @CacheEvict(value = CacheConfig.FEATURED_BOOKS, allEntries = true)
+    })
+    @Transactional(rollbackFor = { Exception.class, Throwable.class })
     public void updateBook(@NotNull Book book) {
-        updateBook(book, null);
+        updateBook(book, 0, null);
     }
     
-    public void updateBook(@NotNull Book book, User changedBy) {
-        Book existingBook = bookRepository.findById(book.getId())
-                .orElse(null);
-        Objects.requireNonNull(existingBook);
+    // addStock > 0 is added to the stock read under the row lock instead of taking book.stock
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.BOOKS, key = "#book.id"),
+            @CacheEvict(value = CacheConfig.FEATURED_BOOKS, allEntries = true)
+    })
+    @Transactional(rollbackFor = { Exception.class, Throwable.class })
+    public void updateBook(@NotNull Book book, int addStock) {
+        updateBook(book, addStock, null);
+    }
+    
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.BOOKS, key = "#book.id"),
+            @CacheEvict(value = CacheConfig.FEATURED_BOOKS, allEntries = true)
+    })
+    @Transactional(rollbackFor = { Exception.class, Throwable.class })
+    public void updateBook(@NotNull Book book, int addStock, User changedBy) {
+        Objects.requireNonNull(book.getId());
+        Book existingBook = findForUpdate(book.getId());
         
         // Record price change if price has changed
         if (existingBook.getPrice() != null && book.getPrice() != null 
@@ -69,38 +122,58 @@ public class BookService {
         existingBook.setPublicationYear(book.getPublicationYear());
         existingBook.setImageUrl(book.getImageUrl());
         existingBook.setDiscount(book.getDiscount());
-        existingBook.setStock(book.getStock());
+        existingBook.setStock(addStock > 0 ? existingBook.getStock() + addStock : book.getStock());
         existingBook.setFeatured(book.getFeatured());
         bookRepository.save(existingBook);
+        suggestionService.indexBook(existingBook);
     }
     
     public List<PriceHistory> getPriceHistory(Long bookId) {
         return priceHistoryRepository.findByBookIdOrderByChangeDateDesc(bookId);
     }
 
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.BOOKS, key = "#id"),
+            @CacheEvict(value = CacheConfig.FEATURED_BOOKS, allEntries = true)
+    })
+    @Transactional(rollbackFor = { Exception.class, Throwable.class })
     public void deleteBookById(Long id) {
         // Check if book has orders
         if (orderItemRepository.existsByBookId(id)) {
             throw new IllegalStateException("Cannot delete book with existing orders. Disable the book instead.");
         }
         bookRepository.deleteById(id);
+        suggestionService.removeBook(id);
     }
     
     public boolean hasOrders(Long bookId) {
         return orderItemRepository.existsByBookId(bookId);
     }
     
-    public void setEnabled(Long bookId, Boolean enabled) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new IllegalArgumentException("Book not found"));
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.BOOKS, key = "#bookId"),
+            @CacheEvict(value = CacheConfig.FEATURED_BOOKS, allEntries = true)
+    })
+    @Transactional(rollbackFor = { Exception.class, Throwable.class })
+    public boolean toggleEnabled(Long bookId) {
+        Book book = findForUpdate(bookId);
+        boolean enabled = !Boolean.TRUE.equals(book.getEnabled());
         book.setEnabled(enabled);
         bookRepository.save(book);
+        suggestionService.indexBook(book);
+        return enabled;
     }
 
+    // Returns at most app.search.max-results books, best matches first
     public List<Book> searchBook(String keyword) {
-        return bookRepository.searchBook(keyword);
+        String terms = SearchTextUtil.toBooleanQuery(keyword);
+        if (terms == null || !searchIndex.isAvailable()) {
+            return bookRepository.searchBook(keyword, PageRequest.of(0, maxSearchResults));
+        }
+        return bookRepository.fullTextSearch(terms, keyword, maxSearchResults);
     }
 
+    @Cacheable(CacheConfig.FEATURED_BOOKS)
     public List<Book> getFeaturedBooks() {
         return bookRepository.findFeaturedBooks();
     }
@@ -121,9 +194,13 @@ public class BookService {
         return bookRepository.findByStockLessThanEqual(threshold);
     }
 
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.BOOKS, key = "#bookId"),
+            @CacheEvict(value = CacheConfig.FEATURED_BOOKS, allEntries = true)
+    })
+    @Transactional(rollbackFor = { Exception.class, Throwable.class })
     public void updateStock(Long bookId, Integer newStock) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new IllegalArgumentException("Book not found"));
+        Book book = findForUpdate(bookId);
         book.setStock(newStock);
         
         // Auto-disable if stock is 0, auto-enable if stock > 0 (per user requirement)
@@ -134,52 +211,60 @@ public class BookService {
         }
         
         bookRepository.save(book);
+        suggestionService.indexBook(book);
     }
     
-    public void reduceStock(Long bookId, Integer quantity) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new IllegalArgumentException("Book not found"));
-        
-        int newStock = book.getStock() - quantity;
-        if (newStock < 0) {
-            throw new IllegalStateException("Insufficient stock for book: " + book.getTitle());
-        }
-        
-        book.setStock(newStock);
-        
-        // Auto-disable if stock reaches 0
-        if (newStock == 0) {
-            book.setEnabled(false);
-        }
-        
+    @Caching(evict = {
+            @CacheEvict(value = CacheConfig.BOOKS, key = "#bookId"),
+            @CacheEvict(value = CacheConfig.FEATURED_BOOKS, allEntries = true)
+    })
+    @Transactional(rollbackFor = { Exception.class, Throwable.class })
+    public boolean toggleFeatured(Long bookId) {
+        Book book = findForUpdate(bookId);
+        boolean featured = !Boolean.TRUE.equals(book.getFeatured());
+        book.setFeatured(featured);
         bookRepository.save(book);
+        return featured;
     }
     
-    public void restoreStock(Long bookId, Integer quantity) {
-        Book book = bookRepository.findById(bookId)
+    // With open-in-view the request's persistence context may already hold this book from one of the
+    // read-only transactions above, and Hibernate never flushes a read-only entity. Such a copy is re-read
+    // under the row lock and made writable, so the change is neither lost nor applied to stale state.
+    private Book findForUpdate(Long bookId) {
+        Book book = bookRepository.findByIdForUpdate(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found"));
-        
-        int newStock = book.getStock() + quantity;
-        book.setStock(newStock);
-        
-        // Auto-enable if stock > 0 (per user requirement)
-        if (newStock > 0 && (book.getEnabled() == null || !book.getEnabled())) {
-            book.setEnabled(true);
+        Session session = entityManager.unwrap(Session.class);
+        if (session.isReadOnly(book)) {
+            session.refresh(book);
+            session.setReadOnly(book, false);
         }
-        
-        bookRepository.save(book);
-    }
-
-    public void setFeatured(Long bookId, Boolean featured) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new IllegalArgumentException("Book not found"));
-        book.setFeatured(featured);
-        bookRepository.save(book);
+        return book;
     }
 
     public List<Book> advancedSearch(String keyword, Long categoryId, 
                                      Double minPrice, Double maxPrice, 
                                      Boolean inStock, String sortBy) {
-        return bookRepository.advancedSearch(keyword, categoryId, minPrice, maxPrice, inStock, sortBy);
+        return advancedSearch(keyword, categoryId, minPrice, maxPrice, inStock, sortBy, Pageable.unpaged())
+                .getContent();
+    }
+
+    public Page<Book> advancedSearch(String keyword, Long categoryId,
+                                     Double minPrice, Double maxPrice,
+                                     Boolean inStock, String sortBy,
+                                     int pageNo, int pageSize) {
+        return advancedSearch(keyword, categoryId, minPrice, maxPrice, inStock, sortBy,
+                PageRequest.of(Math.max(pageNo, 0), Math.max(pageSize, 1)));
+    }
+
+    private Page<Book> advancedSearch(String keyword, Long categoryId,
+                                      Double minPrice, Double maxPrice,
+                                      Boolean inStock, String sortBy,
+                                      Pageable pageable) {
+        String terms = SearchTextUtil.toBooleanQuery(keyword);
+        if (terms != null && searchIndex.isAvailable()) {
+            return bookRepository.fullTextAdvancedSearch(terms, categoryId, minPrice, maxPrice, inStock, sortBy, pageable);
+        }
+        String likeKeyword = keyword == null || keyword.isBlank() ? null : keyword;
+        return bookRepository.advancedSearch(likeKeyword, categoryId, minPrice, maxPrice, inStock, sortBy, pageable);
     }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.repositories.IBookRepository;
+import fit.hutech.spring.utils.SearchTextUtil;
+import fit.hutech.spring.viewmodels.BookSuggestionVm;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookSuggestionService {
+
+    public static final String TYPE_TITLE = "TITLE";
+    public static final String TYPE_AUTHOR = "AUTHOR";
+    private static final int MAX_LIMIT = 20;
+    private static final char SEPARATOR = '\u0000';
+
+    private final IBookRepository bookRepository;
+
+    // Sorted by folded key, so every completion of a prefix is one contiguous range
+    private final ConcurrentSkipListMap<String, Entry> index = new ConcurrentSkipListMap<>();
+    private final Map<Long, List<String>> keysByBook = new ConcurrentHashMap<>();
+
+    private record Entry(String text, String type, int refCount) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        index.clear();
+        keysByBook.clear();
+        for (Object[] row : bookRepository.findSuggestionSources()) {
+            addKeys((Long) row[0], (String) row[1], (String) row[2]);
+        }
+        log.info("Built book suggestion index for {} books ({} keys)", keysByBook.size(), index.size());
+    }
+
+    // Index changes follow the database: inside a transaction they are applied only once it commits,
+    // so a rollback never leaves the index out of sync
+    public void indexBook(Book book) {
+        index(book.getId(), book.getTitle(), book.getAuthor(), Boolean.TRUE.equals(book.getEnabled()));
+    }
+
+    public void index(Long bookId, String title, String author, boolean enabled) {
+        afterCommit(() -> {
+            synchronized (this) {
+                removeKeys(bookId);
+                if (enabled) {
+                    addKeys(bookId, title, author);
+                }
+            }
+        });
+    }
+
+    public void removeBook(Long bookId) {
+        afterCommit(() -> {
+            synchronized (this) {
+                removeKeys(bookId);
+            }
+        });
+    }
+
+    public List<BookSuggestionVm> suggest(String query, int limit) {
+        String prefix = SearchTextUtil.fold(query);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        int max = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        
+        // A title can match at several word positions, so dedupe on type + text
+        Map<String, BookSuggestionVm> results = new LinkedHashMap<>();
+        for (Entry entry : index.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values()) {
+            results.putIfAbsent(entry.type() + SEPARATOR + entry.text(),
+                    new BookSuggestionVm(entry.text(), entry.type()));
+            if (results.size() >= max) {
+                break;
+            }
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    private static void afterCommit(Runnable update) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            update.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                update.run();
+            }
+        });
+    }
+
+    private void addKeys(Long bookId, String title, String author) {
+        List<String> keys = new ArrayList<>();
+        collectKeys(keys, title, TYPE_TITLE);
+        collectKeys(keys, author, TYPE_AUTHOR);
+        for (String key : keys) {
+            String type = key.substring(key.indexOf(SEPARATOR) + 1, key.lastIndexOf(SEPARATOR));
+            String text = TYPE_TITLE.equals(type) ? title : author;
+            index.merge(key, new Entry(text, type, 1),
+                    (existing, added) -> new Entry(existing.text(), existing.type(), existing.refCount() + 1));
+        }
+        keysByBook.put(bookId, keys);
+    }
+
+    private void removeKeys(Long bookId) {
+        List<String> keys = keysByBook.remove(bookId);
+        if (keys == null) {
+            return;
+        }
+        for (String key : keys) {
+            index.computeIfPresent(key, (k, existing) -> existing.refCount() <= 1
+                    ? null
+                    : new Entry(existing.text(), existing.type(), existing.refCount() - 1));
+        }
+    }
+
+    // One key per word start, so "potter" also completes "Harry Potter"
+    private void collectKeys(List<String> keys, String value, String type) {
+        String folded = SearchTextUtil.fold(value);
+        if (folded.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < folded.length(); i++) {
+            if (i == 0 || (folded.charAt(i - 1) == ' ' && folded.charAt(i) != ' ')) {
+                String key = folded.substring(i) + SEPARATOR + type + SEPARATOR + folded;
+                if (!keys.contains(key)) {
+                    keys.add(key);
+                }
+            }
+        }
+    }
+}
@@ -2,32 +2,50 @@ package fit.hutech.spring.services;
 
 import fit.hutech.spring.entities.Category;
 import fit.hutech.spring.repositories.ICategoryRepository;
+import fit.hutech.spring.utils.CacheConfig;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import org.antlr.v4.runtime.misc.NotNull;
 @Service
 @RequiredArgsConstructor
-@Transactional(isolation = Isolation.SERIALIZABLE, rollbackFor = { Exception.class, Throwable.class })
+@Transactional(readOnly = true, isolation = Isolation.READ_COMMITTED)
 public class CategoryService {
     private final ICategoryRepository categoryRepository;
 
+    @Cacheable(CacheConfig.CATEGORIES)
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
+    
+    public Map<Long, Long> getBookCountsByCategory() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : categoryRepository.countBooksByCategory()) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
 
     public Optional<Category> getCategoryById(Long id) {
         return categoryRepository.findById(id);
     }
 
+    @CacheEvict(value = CacheConfig.CATEGORIES, allEntries = true)
+    @Transactional(rollbackFor = { Exception.class, Throwable.class })
     public void addCategory(Category category) {
         categoryRepository.save(category);
     }
 
+    @CacheEvict(value = CacheConfig.CATEGORIES, allEntries = true)
+    @Transactional(rollbackFor = { Exception.class, Throwable.class })
     public void updateCategory(@NotNull Category category) {
         Category existingCategory = categoryRepository
                 .findById(category.getId())
@@ -37,6 +55,8 @@ public class CategoryService {
         categoryRepository.save(existingCategory);
     }
 
+    @CacheEvict(value = CacheConfig.CATEGORIES, allEntries = true)
+    @Transactional(rollbackFor = { Exception.class, Throwable.class })
     public void deleteCategoryById(Long id) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Category not found"));
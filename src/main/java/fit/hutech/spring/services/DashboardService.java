@@ -0,0 +1,50 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.dto.DashboardStats;
+import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.entities.OrderStatus;
+import fit.hutech.spring.repositories.IBookRepository;
+import fit.hutech.spring.repositories.ICategoryRepository;
+import fit.hutech.spring.repositories.IUserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class DashboardService {
+    
+    public static final int LOW_STOCK_THRESHOLD = 5;
+    
+    private final IBookRepository bookRepository;
+    private final ICategoryRepository categoryRepository;
+    private final IUserRepository userRepository;
+    private final SalesSummaryService salesSummaryService;
+    
+    // Every figure is a COUNT/SUM in the database; no entity lists are loaded
+    public DashboardStats getStatistics() {
+        Map<OrderStatus, Long> ordersByStatus = salesSummaryService.countGroupByStatus();
+        Double revenue = salesSummaryService.getTotalRevenue();
+        
+        return DashboardStats.builder()
+                .totalBooks(bookRepository.count())
+                .lowStockBooks(bookRepository.countByStockLessThanEqual(LOW_STOCK_THRESHOLD))
+                .outOfStockBooks(bookRepository.countByStockLessThanEqual(0))
+                .featuredBooks(bookRepository.countByEnabledTrueAndFeaturedTrue())
+                .totalCategories(categoryRepository.count())
+                .totalUsers(userRepository.count())
+                .pendingOrders(ordersByStatus.getOrDefault(OrderStatus.PENDING, 0L))
+                .processingOrders(ordersByStatus.getOrDefault(OrderStatus.PROCESSING, 0L))
+                .completedOrders(ordersByStatus.getOrDefault(OrderStatus.DELIVERED, 0L))
+                .totalRevenue(revenue != null ? revenue : 0.0)
+                .build();
+    }
+    
+    public List<Book> getLowStockPreview() {
+        return bookRepository.findTop5ByStockLessThanEqualOrderByStockAsc(LOW_STOCK_THRESHOLD);
+    }
+}
@@ -1,222 +1,195 @@
 package fit.hutech.spring.services;
 
+import fit.hutech.spring.entities.EmailOutbox;
 import fit.hutech.spring.entities.Order;
 import fit.hutech.spring.entities.User;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class EmailService {
 
-    private final JavaMailSender mailSender;
-    private final TemplateEngine templateEngine;
-
-    @Value("${spring.mail.username:noreply@storystation.com}")
-    private String fromEmail;
+    private final MailOutboxService mailOutboxService;
+    private final EmailTemplateRenderer emailRenderer;
 
     @Value("${app.name:Story Station}")
     private String appName;
 
-    @Async
     public void sendWelcomeEmail(User user) {
         try {
-            Context context = new Context();
-            context.setVariable("username", user.getUsername());
-            context.setVariable("appName", appName);
-
-            String htmlContent = templateEngine.process("email/welcome", context);
-            sendHtmlEmail(user.getEmail(), "Welcome to " + appName + "!", htmlContent);
-            log.info("Welcome email sent to: {}", user.getEmail());
+            String htmlContent = emailRenderer.render("email/welcome", Map.of("username", user.getUsername()));
+            queue(user.getEmail(), "Welcome to " + appName + "!", htmlContent);
+            log.info("Welcome email queued for: {}", user.getEmail());
         } catch (Exception e) {
-            log.error("Failed to send welcome email to {}: {}", user.getEmail(), e.getMessage());
+            log.error("Failed to queue welcome email to {}: {}", user.getEmail(), e.getMessage());
         }
     }
 
-    @Async
     public void sendOrderConfirmationEmail(Order order) {
         try {
-            Context context = new Context();
-            context.setVariable("order", order);
-            context.setVariable("user", order.getUser());
-            context.setVariable("appName", appName);
-
-            String htmlContent = templateEngine.process("email/order-confirmation", context);
-            sendHtmlEmail(order.getUser().getEmail(), 
+            String htmlContent = emailRenderer.render("email/order-confirmation", Map.of("order", order, "user", order.getUser()));
+            queue(order.getUser().getEmail(), 
                     appName + " - Order Confirmation #" + order.getOrderNumber(), 
                     htmlContent);
-            log.info("Order confirmation email sent for order: {}", order.getOrderNumber());
+            log.info("Order confirmation email queued for order: {}", order.getOrderNumber());
         } catch (Exception e) {
-            log.error("Failed to send order confirmation email for order {}: {}", 
+            log.error("Failed to queue order confirmation email for order {}: {}", 
                     order.getOrderNumber(), e.getMessage());
         }
     }
 
-    @Async
     public void sendOrderStatusUpdateEmail(Order order) {
         try {
-            Context context = new Context();
-            context.setVariable("order", order);
-            context.setVariable("user", order.getUser());
-            context.setVariable("status", order.getStatus().getDisplayName());
-            context.setVariable("appName", appName);
-
-            String htmlContent = templateEngine.process("email/order-status-update", context);
-            sendHtmlEmail(order.getUser().getEmail(),
+            String htmlContent = emailRenderer.render("email/order-status-update", statusUpdateVariables(order));
+            queue(order.getUser().getEmail(),
                     appName + " - Order #" + order.getOrderNumber() + " Status Update",
                     htmlContent);
-            log.info("Order status update email sent for order: {}", order.getOrderNumber());
+            log.info("Order status update email queued for order: {}", order.getOrderNumber());
         } catch (Exception e) {
-            log.error("Failed to send order status email for order {}: {}", 
+            log.error("Failed to queue order status email for order {}: {}", 
                     order.getOrderNumber(), e.getMessage());
         }
     }
 
-    @Async
-    public void sendShippingNotificationEmail(Order order) {
+    // Bulk variants: every message is rendered in one pass and queued in a single outbox write
+    public void sendOrderStatusUpdateEmails(List<Order> orders) {
+        queueForOrders("email/order-status-update", orders, this::statusUpdateVariables,
+                order -> appName + " - Order #" + order.getOrderNumber() + " Status Update");
+    }
+
+    public void sendShippingNotificationEmails(List<Order> orders) {
+        queueForOrders("email/shipping-notification", orders, order -> Map.of("order", order, "user", order.getUser()),
+                order -> appName + " - Your Order #" + order.getOrderNumber() + " Has Shipped!");
+    }
+
+    private void queueForOrders(String template, List<Order> orders, Function<Order, Map<String, ?>> variables,
+                                Function<Order, String> subject) {
+        if (orders.isEmpty()) {
+            return;
+        }
         try {
-            Context context = new Context();
-            context.setVariable("order", order);
-            context.setVariable("user", order.getUser());
-            context.setVariable("appName", appName);
+            List<String> rendered = emailRenderer.renderEach(template, orders, variables);
+            List<EmailOutbox> emails = new ArrayList<>(orders.size());
+            for (int i = 0; i < orders.size(); i++) {
+                Order order = orders.get(i);
+                emails.add(EmailOutbox.builder()
+                        .recipient(order.getUser().getEmail())
+                        .subject(subject.apply(order))
+                        .htmlBody(rendered.get(i))
+                        .build());
+            }
+            mailOutboxService.enqueueAll(emails);
+            wakeUpDispatcher();
+            log.info("{} emails queued for {} orders", template, emails.size());
+        } catch (Exception e) {
+            log.error("Failed to queue {} emails for {} orders: {}", template, orders.size(), e.getMessage());
+        }
+    }
 
-            String htmlContent = templateEngine.process("email/shipping-notification", context);
-            sendHtmlEmail(order.getUser().getEmail(),
+    public void sendShippingNotificationEmail(Order order) {
+        try {
+            String htmlContent = emailRenderer.render("email/shipping-notification", Map.of("order", order, "user", order.getUser()));
+            queue(order.getUser().getEmail(),
                     appName + " - Your Order #" + order.getOrderNumber() + " Has Shipped!",
                     htmlContent);
-            log.info("Shipping notification email sent for order: {}", order.getOrderNumber());
+            log.info("Shipping notification email queued for order: {}", order.getOrderNumber());
         } catch (Exception e) {
-            log.error("Failed to send shipping notification email for order {}: {}", 
+            log.error("Failed to queue shipping notification email for order {}: {}", 
                     order.getOrderNumber(), e.getMessage());
         }
     }
 
-    @Async
     public void sendPasswordResetEmail(User user, String resetToken) {
         try {
-            Context context = new Context();
-            context.setVariable("username", user.getUsername());
-            context.setVariable("resetToken", resetToken);
-            context.setVariable("appName", appName);
-
-            String htmlContent = templateEngine.process("email/password-reset", context);
-            sendHtmlEmail(user.getEmail(), appName + " - Password Reset Request", htmlContent);
-            log.info("Password reset email sent to: {}", user.getEmail());
+            String htmlContent = emailRenderer.render("email/password-reset",
+                    Map.of("username", user.getUsername(), "resetToken", resetToken));
+            queue(user.getEmail(), appName + " - Password Reset Request", htmlContent);
+            log.info("Password reset email queued for: {}", user.getEmail());
         } catch (Exception e) {
-            log.error("Failed to send password reset email to {}: {}", user.getEmail(), e.getMessage());
+            log.error("Failed to queue password reset email to {}: {}", user.getEmail(), e.getMessage());
         }
     }
 
-    @Async
     public void sendAccountLockedEmail(User user) {
         try {
-            String htmlContent = String.format(
-                "<html><body>" +
-                "<h2>Account Locked - %s</h2>" +
-                "<p>Dear %s,</p>" +
-                "<p>Your account has been locked due to <strong>5 failed login attempts</strong>.</p>" +
-                "<p>Your account will be automatically unlocked after <strong>24 hours</strong>.</p>" +
-                "<p>If you did not attempt to login, please contact our support team immediately.</p>" +
-                "<br><p>Best regards,<br>%s Team</p>" +
-                "</body></html>",
-                appName, user.getUsername(), appName
-            );
-            sendHtmlEmail(user.getEmail(), appName + " - Account Locked", htmlContent);
-            log.info("Account locked email sent to: {}", user.getEmail());
+            String htmlContent = emailRenderer.render("email/account-locked", Map.of("username", user.getUsername()));
+            queue(user.getEmail(), appName + " - Account Locked", htmlContent);
+            log.info("Account locked email queued for: {}", user.getEmail());
         } catch (Exception e) {
-            log.error("Failed to send account locked email to {}: {}", user.getEmail(), e.getMessage());
+            log.error("Failed to queue account locked email to {}: {}", user.getEmail(), e.getMessage());
         }
     }
     
-    @Async
     public void sendLowStockAlertEmail(String adminEmail, String bookTitle, int currentStock) {
         try {
-            String htmlContent = String.format(
-                "<html><body>" +
-                "<h2>Low Stock Alert - %s</h2>" +
-                "<p>The following book has low stock:</p>" +
-                "<p><strong>Book:</strong> %s</p>" +
-                "<p><strong>Current Stock:</strong> %d</p>" +
-                "<p>Please consider restocking this item.</p>" +
-                "<br><p>Best regards,<br>%s Inventory System</p>" +
-                "</body></html>",
-                appName, bookTitle, currentStock, appName
-            );
-            sendHtmlEmail(adminEmail, appName + " - Low Stock Alert: " + bookTitle, htmlContent);
-            log.info("Low stock alert email sent for book: {}", bookTitle);
+            String htmlContent = emailRenderer.render("email/low-stock-alert",
+                    Map.of("bookTitle", bookTitle, "currentStock", currentStock));
+            queue(adminEmail, appName + " - Low Stock Alert: " + bookTitle, htmlContent);
+            log.info("Low stock alert email queued for book: {}", bookTitle);
         } catch (Exception e) {
-            log.error("Failed to send low stock alert email: {}", e.getMessage());
+            log.error("Failed to queue low stock alert email: {}", e.getMessage());
         }
     }
     
-    @Async
     public void sendOrderConfirmationWithInvoice(Order order, byte[] pdfInvoice) {
         try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-            
-            Context context = new Context();
-            context.setVariable("order", order);
-            context.setVariable("user", order.getUser());
-            context.setVariable("appName", appName);
-            
-            String htmlContent = templateEngine.process("email/order-confirmation", context);
-            
-            helper.setFrom(fromEmail);
-            helper.setTo(order.getUser().getEmail());
-            helper.setSubject(appName + " - Order Confirmation #" + order.getOrderNumber());
-            helper.setText(htmlContent, true);
+            String htmlContent = emailRenderer.render("email/order-confirmation", Map.of("order", order, "user", order.getUser()));
             
             // Attach PDF invoice
-            if (pdfInvoice != null) {
-                helper.addAttachment("Invoice_" + order.getOrderNumber() + ".pdf", 
-                        () -> new java.io.ByteArrayInputStream(pdfInvoice));
-            }
-            
-            mailSender.send(message);
-            log.info("Order confirmation with invoice sent for order: {}", order.getOrderNumber());
+            String attachmentName = pdfInvoice != null ? "Invoice_" + order.getOrderNumber() + ".pdf" : null;
+            mailOutboxService.enqueue(order.getUser().getEmail(),
+                    appName + " - Order Confirmation #" + order.getOrderNumber(),
+                    htmlContent, attachmentName, pdfInvoice);
+            wakeUpDispatcher();
+            log.info("Order confirmation with invoice queued for order: {}", order.getOrderNumber());
         } catch (Exception e) {
-            log.error("Failed to send order confirmation with invoice for order {}: {}", 
+            log.error("Failed to queue order confirmation with invoice for order {}: {}", 
                     order.getOrderNumber(), e.getMessage());
         }
     }
 
-    @Async
     public void sendPasswordResetOtp(String email, String otp) {
         try {
-            Context context = new Context();
-            context.setVariable("otp", otp);
-            context.setVariable("appName", appName);
-            context.setVariable("validityMinutes", 10);
-
-            String htmlContent = templateEngine.process("email/password-reset-otp", context);
-            sendHtmlEmail(email, "Password Reset OTP - " + appName, htmlContent);
-            log.info("Password reset OTP sent to: {}", email);
+            String htmlContent = emailRenderer.render("email/password-reset-otp", Map.of("otp", otp, "validityMinutes", 10));
+            queue(email, "Password Reset OTP - " + appName, htmlContent);
+            log.info("Password reset OTP queued for: {}", email);
         } catch (Exception e) {
-            log.error("Failed to send password reset OTP to {}: {}", email, e.getMessage());
+            log.error("Failed to queue password reset OTP to {}: {}", email, e.getMessage());
         }
     }
 
-    private void sendHtmlEmail(String to, String subject, String htmlContent) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+    private Map<String, Object> statusUpdateVariables(Order order) {
+        return Map.of("order", order, "user", order.getUser(), "status", order.getStatus().getDisplayName());
+    }
 
-        helper.setFrom(fromEmail);
-        helper.setTo(to);
-        helper.setSubject(subject);
-        helper.setText(htmlContent, true);
+    // Mail is stored in the outbox and delivered by the mail executor, never on the caller's thread
+    private void queue(String to, String subject, String htmlContent) {
+        mailOutboxService.enqueue(to, subject, htmlContent);
+        wakeUpDispatcher();
+    }
 
-        mailSender.send(message);
+    // Start delivery once the row is visible, i.e. after the caller's transaction (if any) commits
+    private void wakeUpDispatcher() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            mailOutboxService.dispatchAsync();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                mailOutboxService.dispatchAsync();
+            }
+        });
     }
 }
@@ -0,0 +1,69 @@
+package fit.hutech.spring.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+// Dedicated engine for email templates. Parsed templates and fragments stay cached for the life of the
+// application, independent of spring.thymeleaf.cache, which only governs the web views. Mail is rendered
+// outside any request, so links in templates are built from appBaseUrl rather than with @{/...}.
+@Service
+public class EmailTemplateRenderer {
+
+    private final SpringTemplateEngine engine;
+    private final String appName;
+    private final String appBaseUrl;
+
+    public EmailTemplateRenderer(@Value("${app.name:Story Station}") String appName,
+                                 @Value("${app.base-url:http://localhost:8080}") String appBaseUrl) {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        resolver.setCacheTTLMs(null);
+
+        this.engine = new SpringTemplateEngine();
+        this.engine.setTemplateResolver(resolver);
+        this.appName = appName;
+        this.appBaseUrl = appBaseUrl.endsWith("/") ? appBaseUrl.substring(0, appBaseUrl.length() - 1) : appBaseUrl;
+    }
+
+    public String render(String template, Map<String, ?> variables) {
+        Context context = newContext();
+        context.setVariables(new LinkedHashMap<>(variables));
+        return engine.process(template, context);
+    }
+
+    // Renders one template for many items in a single pass, reusing the parsed template and one context.
+    // The result is in item order, so callers pair it up by position rather than by a key on the item.
+    public <T> List<String> renderEach(String template, List<T> items, Function<T, Map<String, ?>> variables) {
+        List<String> rendered = new ArrayList<>(items.size());
+        Context context = newContext();
+        for (T item : items) {
+            context.clearVariables();
+            context.setVariable("appName", appName);
+            context.setVariable("appBaseUrl", appBaseUrl);
+            context.setVariables(new LinkedHashMap<>(variables.apply(item)));
+            rendered.add(engine.process(template, context));
+        }
+        return rendered;
+    }
+
+    private Context newContext() {
+        Context context = new Context();
+        context.setVariable("appName", appName);
+        context.setVariable("appBaseUrl", appBaseUrl);
+        return context;
+    }
+}
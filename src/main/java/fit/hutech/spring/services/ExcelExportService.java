@@ -6,32 +6,47 @@ import fit.hutech.spring.entities.OrderStatus;
 import fit.hutech.spring.repositories.IBookRepository;
 import fit.hutech.spring.repositories.IOrderItemRepository;
 import fit.hutech.spring.repositories.IOrderRepository;
+import fit.hutech.spring.viewmodels.TopSellerVm;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ExcelExportService {
     
+    // Rows kept in memory per sheet before SXSSF flushes them to its temp file
+    private static final int ROW_ACCESS_WINDOW = 100;
+    // Persistence context is cleared every N streamed orders to keep the heap flat
+    private static final int CLEAR_INTERVAL = 500;
+    private static final int TOP_N = 10;
+    
     private final IOrderRepository orderRepository;
     private final IOrderItemRepository orderItemRepository;
     private final IBookRepository bookRepository;
     private final OrderService orderService;
+    private final EntityManager entityManager;
     
-    public byte[] generateSalesReport(Date startDate, Date endDate) {
-        try (Workbook workbook = new XSSFWorkbook();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            
+    // Streams the report straight to the given output; memory use does not grow with the order count
+    @Transactional(readOnly = true)
+    public void writeSalesReport(Date startDate, Date endDate, OutputStream out) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
             // Create styles
             CellStyle headerStyle = createHeaderStyle(workbook);
             CellStyle titleStyle = createTitleStyle(workbook);
@@ -49,13 +64,15 @@ public class ExcelExportService {
             // Sheet 4: Orders List
             createOrdersSheet(workbook, titleStyle, headerStyle, currencyStyle, startDate, endDate);
             
-            workbook.write(baos);
+            workbook.write(out);
+            out.flush();
             log.info("Generated Excel sales report");
-            return baos.toByteArray();
             
         } catch (Exception e) {
             log.error("Error generating Excel report", e);
             throw new RuntimeException("Failed to generate Excel report", e);
+        } finally {
+            workbook.dispose();
         }
     }
     
@@ -89,9 +106,16 @@ public class ExcelExportService {
         revenueHeader.createCell(0).setCellValue("REVENUE SUMMARY");
         revenueHeader.getCell(0).setCellStyle(headerStyle);
         
-        Double totalRevenue = startDate != null && endDate != null 
-                ? orderService.getRevenueByDateRange(startDate, endDate)
+        // Figures cover the same window as the orders sheet; only an unbounded report uses the all-time rollup
+        boolean windowed = startDate != null || endDate != null;
+        Date windowStart = startDate != null ? startDate : new Date(0);
+        Date windowEnd = endDate != null ? endDate : new Date();
+        Double totalRevenue = windowed
+                ? orderService.getRevenueByDateRange(windowStart, windowEnd)
                 : orderService.getTotalRevenue();
+        Map<OrderStatus, Long> statusCounts = windowed
+                ? orderService.countGroupByStatus(windowStart, windowEnd)
+                : orderService.countGroupByStatus();
         
         Row revenueRow = sheet.createRow(rowNum++);
         revenueRow.createCell(0).setCellValue("Total Revenue:");
@@ -108,23 +132,23 @@ public class ExcelExportService {
         
         Row pendingRow = sheet.createRow(rowNum++);
         pendingRow.createCell(0).setCellValue("Pending Orders:");
-        pendingRow.createCell(1).setCellValue(orderService.countByStatus(OrderStatus.PENDING));
+        pendingRow.createCell(1).setCellValue(statusCounts.getOrDefault(OrderStatus.PENDING, 0L));
         
         Row processingRow = sheet.createRow(rowNum++);
         processingRow.createCell(0).setCellValue("Processing Orders:");
-        processingRow.createCell(1).setCellValue(orderService.countByStatus(OrderStatus.PROCESSING));
+        processingRow.createCell(1).setCellValue(statusCounts.getOrDefault(OrderStatus.PROCESSING, 0L));
         
         Row shippedRow = sheet.createRow(rowNum++);
         shippedRow.createCell(0).setCellValue("Shipped Orders:");
-        shippedRow.createCell(1).setCellValue(orderService.countByStatus(OrderStatus.SHIPPED));
+        shippedRow.createCell(1).setCellValue(statusCounts.getOrDefault(OrderStatus.SHIPPED, 0L));
         
         Row deliveredRow = sheet.createRow(rowNum++);
         deliveredRow.createCell(0).setCellValue("Delivered Orders:");
-        deliveredRow.createCell(1).setCellValue(orderService.countByStatus(OrderStatus.DELIVERED));
+        deliveredRow.createCell(1).setCellValue(statusCounts.getOrDefault(OrderStatus.DELIVERED, 0L));
         
         Row cancelledRow = sheet.createRow(rowNum++);
         cancelledRow.createCell(0).setCellValue("Cancelled Orders:");
-        cancelledRow.createCell(1).setCellValue(orderService.countByStatus(OrderStatus.CANCELLED));
+        cancelledRow.createCell(1).setCellValue(statusCounts.getOrDefault(OrderStatus.CANCELLED, 0L));
         
         rowNum++; // Empty row
         
@@ -163,22 +187,14 @@ public class ExcelExportService {
         }
         
         // Data
-        List<Object[]> topSellers = orderItemRepository.findTopSellingBooks();
+        List<TopSellerVm> topSellers = orderItemRepository.findTopSellingBooks(PageRequest.of(0, TOP_N));
         int rank = 1;
-        for (Object[] item : topSellers) {
-            if (rank > 10) break;
-            
-            Long bookId = (Long) item[0];
-            Long totalSold = (Long) item[1];
-            
-            Book book = bookRepository.findById(bookId).orElse(null);
-            if (book == null) continue;
-            
+        for (TopSellerVm item : topSellers) {
             Row dataRow = sheet.createRow(rowNum++);
             dataRow.createCell(0).setCellValue(rank++);
-            dataRow.createCell(1).setCellValue(book.getTitle());
-            dataRow.createCell(2).setCellValue(book.getAuthor());
-            dataRow.createCell(3).setCellValue(totalSold);
+            dataRow.createCell(1).setCellValue(item.title());
+            dataRow.createCell(2).setCellValue(item.author());
+            dataRow.createCell(3).setCellValue(item.totalSold());
         }
     }
     
@@ -210,17 +226,11 @@ public class ExcelExportService {
             cell.setCellStyle(headerStyle);
         }
         
-        // Data - get all books sorted by stock descending
-        List<Book> allBooks = bookRepository.findAll();
-        allBooks.sort((b1, b2) -> Integer.compare(
-                b2.getStock() != null ? b2.getStock() : 0,
-                b1.getStock() != null ? b1.getStock() : 0
-        ));
+        // Data - sorted and limited in the database
+        List<Book> topStockBooks = bookRepository.findTop10ByOrderByStockDesc();
         
         int rank = 1;
-        for (Book book : allBooks) {
-            if (rank > 10) break;
-            
+        for (Book book : topStockBooks) {
             Row dataRow = sheet.createRow(rowNum++);
             dataRow.createCell(0).setCellValue(rank++);
             dataRow.createCell(1).setCellValue(book.getTitle());
@@ -259,21 +269,24 @@ public class ExcelExportService {
             cell.setCellStyle(headerStyle);
         }
         
-        // Data
-        List<Order> orders = startDate != null && endDate != null 
-                ? orderService.findByDateRange(startDate, endDate)
-                : orderRepository.findAll();
-        
+        // Data - streamed from a database cursor with the customer fetch-joined
         SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy HH:mm");
-        for (Order order : orders) {
-            Row dataRow = sheet.createRow(rowNum++);
-            dataRow.createCell(0).setCellValue(order.getOrderNumber());
-            dataRow.createCell(1).setCellValue(sdf.format(order.getOrderDate()));
-            dataRow.createCell(2).setCellValue(order.getUser().getUsername());
-            dataRow.createCell(3).setCellValue(order.getStatus().getDisplayName());
-            Cell totalCell = dataRow.createCell(4);
-            totalCell.setCellValue(order.getTotal());
-            totalCell.setCellStyle(currencyStyle);
+        try (Stream<Order> orders = orderRepository.streamForExport(startDate, endDate)) {
+            int streamed = 0;
+            for (Order order : (Iterable<Order>) orders::iterator) {
+                Row dataRow = sheet.createRow(rowNum++);
+                dataRow.createCell(0).setCellValue(order.getOrderNumber());
+                dataRow.createCell(1).setCellValue(sdf.format(order.getOrderDate()));
+                dataRow.createCell(2).setCellValue(order.getUser().getUsername());
+                dataRow.createCell(3).setCellValue(order.getStatus().getDisplayName());
+                Cell totalCell = dataRow.createCell(4);
+                totalCell.setCellValue(order.getTotal());
+                totalCell.setCellStyle(currencyStyle);
+                
+                if (++streamed % CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
         }
     }
     
@@ -0,0 +1,47 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.entities.ExportCheckpoint;
+import fit.hutech.spring.repositories.IExportCheckpointRepository;
+import fit.hutech.spring.viewmodels.ReportRange;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class ExportCheckpointService {
+    
+    public static final String SALES_REPORT = "sales-report";
+    
+    private final IExportCheckpointRepository checkpointRepository;
+    
+    // Orders are stamped with their date before they commit, so the window stops this far behind the clock
+    // to leave time for checkouts still in flight to become visible
+    @Value("${app.reports.incremental-lag-seconds:300}")
+    private long safetyLagSeconds;
+    
+    // Window from just after the last successful export up to now minus the safety lag; everything on the
+    // first run. Empty when the previous export already reached past the lag.
+    @Transactional(readOnly = true)
+    public ReportRange nextWindow(String name) {
+        Date end = new Date(System.currentTimeMillis() - safetyLagSeconds * 1000);
+        Date start = checkpointRepository.findById(name)
+                .map(checkpoint -> new Date(checkpoint.getLastExportedAt().getTime() + 1))
+                .orElse(null);
+        return new ReportRange(start, end, true);
+    }
+    
+    // Never moves the checkpoint backwards when exports finish out of order
+    public void advance(String name, Date exportedUpTo) {
+        ExportCheckpoint checkpoint = checkpointRepository.findById(name)
+                .orElseGet(() -> ExportCheckpoint.builder().name(name).build());
+        if (checkpoint.getLastExportedAt() == null || checkpoint.getLastExportedAt().before(exportedUpTo)) {
+            checkpoint.setLastExportedAt(exportedUpTo);
+            checkpointRepository.save(checkpoint);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.repositories.IBookRepository;
+import fit.hutech.spring.utils.CacheConfig;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Stock reservation for checkout and cancellation. All lines of an order are applied in one JDBC batch of
+// conditional UPDATEs, so concurrent checkouts can neither lose an update nor oversell: the row lock taken by
+// each UPDATE serialises writers on that book only, and "stock >= ?" rejects the line if stock ran out.
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class InventoryService {
+
+    // enabled is assigned before stock so the CASE sees the pre-update value on every database
+    private static final String RESERVE_SQL =
+            "UPDATE book SET enabled = CASE WHEN stock - ? <= 0 THEN FALSE ELSE enabled END, " +
+            "stock = stock - ? WHERE id = ? AND stock >= ?";
+    private static final String RELEASE_SQL =
+            "UPDATE book SET enabled = CASE WHEN stock + ? > 0 THEN TRUE ELSE enabled END, " +
+            "stock = stock + ? WHERE id = ?";
+    private static final String SUGGESTION_SQL = "SELECT id, title, author, enabled FROM book WHERE id IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IBookRepository bookRepository;
+    private final BookSuggestionService suggestionService;
+    private final EntityManagerFactory entityManagerFactory;
+    private final CacheManager cacheManager;
+
+    // Takes quantities per book id; throws and leaves stock untouched (on rollback) if any line is short
+    public void reserve(Map<Long, Integer> quantities) {
+        // Ascending id order means every checkout locks rows in the same order, so they cannot deadlock
+        TreeMap<Long, Integer> lines = new TreeMap<>(quantities);
+        List<Object[]> args = new ArrayList<>(lines.size());
+        lines.forEach((bookId, quantity) -> args.add(new Object[]{quantity, quantity, bookId, quantity}));
+
+        int[] updated = jdbcTemplate.batchUpdate(RESERVE_SQL, args);
+
+        int i = 0;
+        for (Long bookId : lines.keySet()) {
+            if (updated[i++] == 0) {
+                String title = bookRepository.findById(bookId).map(Book::getTitle).orElse("#" + bookId);
+                throw new IllegalStateException("Insufficient stock for book: " + title);
+            }
+        }
+        afterStockChange(lines.keySet());
+    }
+
+    public void release(Map<Long, Integer> quantities) {
+        TreeMap<Long, Integer> lines = new TreeMap<>(quantities);
+        List<Object[]> args = new ArrayList<>(lines.size());
+        lines.forEach((bookId, quantity) -> args.add(new Object[]{quantity, quantity, bookId}));
+
+        jdbcTemplate.batchUpdate(RELEASE_SQL, args);
+        afterStockChange(lines.keySet());
+    }
+
+    // The UPDATEs bypass Hibernate, so cached copies of these books, and the cached query results that may
+    // list them, are dropped once the change is committed
+    private void afterStockChange(Iterable<Long> bookIds) {
+        List<Long> ids = new ArrayList<>();
+        bookIds.forEach(ids::add);
+
+        Cache books = cacheManager.getCache(CacheConfig.BOOKS);
+        Cache featured = cacheManager.getCache(CacheConfig.FEATURED_BOOKS);
+        ids.forEach(id -> {
+            if (books != null) {
+                books.evict(id);
+            }
+        });
+        if (featured != null) {
+            featured.clear();
+        }
+
+        // Read on the transaction's own connection, so these are the values just written rather than the
+        // Book instances the persistence context may still hold; the index applies them after commit
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        jdbcTemplate.query(SUGGESTION_SQL.formatted(placeholders), (RowCallbackHandler) rs ->
+                suggestionService.index(rs.getLong("id"), rs.getString("title"), rs.getString("author"),
+                        rs.getBoolean("enabled")), ids.toArray());
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+                var secondLevelCache = sessionFactory.getCache();
+                ids.forEach(id -> secondLevelCache.evictEntityData(Book.class, id));
+                // findFeaturedBooks and findByCategory are cached in the default query region
+                secondLevelCache.evictDefaultQueryRegion();
+            }
+        });
+    }
+}
@@ -0,0 +1,254 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.entities.Order;
+import fit.hutech.spring.entities.OrderStatus;
+import fit.hutech.spring.repositories.IOrderRepository;
+import fit.hutech.spring.utils.AsyncConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Disk store for rendered invoices. A delivered order never changes, so its PDF is rendered once and
+// kept as "<orderId>-<sha256>.pdf"; the content hash doubles as the HTTP ETag. The store is indexed with a
+// single directory scan at startup, so lookups never touch the directory.
+@Service
+@Slf4j
+public class InvoiceService {
+
+    public record StoredInvoice(Path file, String etag) {
+    }
+
+    private record ArchiveEntry(String name, Path file) {
+    }
+
+    // Orders loaded and rendered together during a bulk export
+    private static final int ARCHIVE_BATCH_SIZE = 50;
+
+    private final PdfService pdfService;
+    private final IOrderRepository orderRepository;
+    private final TaskExecutor invoiceExecutor;
+    private final TaskExecutor archiveExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Path storageDir;
+
+    private final Map<Long, StoredInvoice> index = new ConcurrentHashMap<>();
+
+    public InvoiceService(PdfService pdfService,
+                          IOrderRepository orderRepository,
+                          @Qualifier(AsyncConfig.INVOICE_EXECUTOR) TaskExecutor invoiceExecutor,
+                          @Qualifier(AsyncConfig.INVOICE_ARCHIVE_EXECUTOR) TaskExecutor archiveExecutor,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${app.invoices.dir:${java.io.tmpdir}/storystation-invoices}") String storageDir) throws IOException {
+        this.pdfService = pdfService;
+        this.orderRepository = orderRepository;
+        this.invoiceExecutor = invoiceExecutor;
+        this.archiveExecutor = archiveExecutor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.storageDir = Files.createDirectories(Paths.get(storageDir));
+        loadIndex();
+    }
+
+    // Returns the stored invoice, rendering it on first request
+    public StoredInvoice getOrRender(Order order) {
+        if (order.getStatus() != OrderStatus.DELIVERED) {
+            throw new IllegalStateException("Invoice can only be generated for delivered orders");
+        }
+        return find(order.getId()).orElseGet(() -> store(order));
+    }
+
+    // Streams a ZIP with the invoice of every delivered order in the range. Stored invoices are copied as they
+    // are; missing ones are rendered in parallel, one batch of orders at a time, and added as they finish.
+    public int writeArchive(Date startDate, Date endDate, OutputStream out) throws IOException {
+        List<Object[]> rows = readOnlyTransaction.execute(status -> orderRepository
+                .findIdAndNumberByStatusAndDateRange(OrderStatus.DELIVERED, startDate, endDate));
+        
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setLevel(Deflater.BEST_SPEED);
+        for (int from = 0; from < rows.size(); from += ARCHIVE_BATCH_SIZE) {
+            writeArchiveBatch(rows.subList(from, Math.min(from + ARCHIVE_BATCH_SIZE, rows.size())), zip);
+        }
+        zip.finish();
+        zip.flush();
+        log.info("Exported {} invoices", rows.size());
+        return rows.size();
+    }
+
+    private void writeArchiveBatch(List<Object[]> batch, ZipOutputStream zip) throws IOException {
+        List<Long> missing = new ArrayList<>();
+        for (Object[] row : batch) {
+            Long orderId = (Long) row[0];
+            Optional<StoredInvoice> stored = find(orderId);
+            if (stored.isPresent()) {
+                writeZipEntry(zip, new ArchiveEntry(entryName((String) row[1]), stored.get().file()));
+            } else {
+                missing.add(orderId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        
+        List<Order> orders = readOnlyTransaction.execute(status -> orderRepository.findForInvoicesByIdIn(missing));
+        CompletionService<ArchiveEntry> completion = new ExecutorCompletionService<>(archiveExecutor);
+        for (Order order : orders) {
+            completion.submit(() -> new ArchiveEntry(entryName(order.getOrderNumber()), getOrRender(order).file()));
+        }
+        try {
+            for (int i = 0; i < orders.size(); i++) {
+                writeZipEntry(zip, completion.take().get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Invoice export interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to render invoice for export", e.getCause());
+        }
+    }
+
+    private static void writeZipEntry(ZipOutputStream zip, ArchiveEntry entry) throws IOException {
+        zip.putNextEntry(new ZipEntry(entry.name()));
+        Files.copy(entry.file(), zip);
+        zip.closeEntry();
+    }
+
+    private static String entryName(String orderNumber) {
+        return "Invoice_" + orderNumber + ".pdf";
+    }
+
+    // Renders the invoice in the background so the first download is served from disk
+    public void prerender(Long orderId) {
+        try {
+            invoiceExecutor.execute(() -> {
+                try {
+                    readOnlyTransaction.executeWithoutResult(status -> orderRepository.findById(orderId)
+                            .filter(order -> order.getStatus() == OrderStatus.DELIVERED)
+                            .ifPresent(this::getOrRender));
+                } catch (Exception e) {
+                    log.warn("Pre-rendering invoice for order {} failed; it will be rendered on download", orderId, e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // Best effort only: the invoice is rendered lazily on first download instead
+            log.debug("Invoice pre-render queue full, skipping order {}", orderId);
+        }
+    }
+
+    // Every stored file is indexed, so a miss means the invoice has not been rendered yet
+    private Optional<StoredInvoice> find(Long orderId) {
+        StoredInvoice cached = index.get(orderId);
+        if (cached == null) {
+            return Optional.empty();
+        }
+        if (!Files.exists(cached.file())) {
+            // Removed from disk behind our back; render it again
+            index.remove(orderId, cached);
+            return Optional.empty();
+        }
+        return Optional.of(cached);
+    }
+
+    // Picks up the invoices rendered by earlier runs of the application in one pass over the directory
+    private void loadIndex() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(storageDir, "*.pdf")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int separator = name.indexOf('-');
+                if (separator <= 0) {
+                    continue;
+                }
+                try {
+                    Long orderId = Long.valueOf(name.substring(0, separator));
+                    String hash = name.substring(separator + 1, name.length() - ".pdf".length());
+                    index.putIfAbsent(orderId, new StoredInvoice(file, "\"" + hash + "\""));
+                } catch (NumberFormatException e) {
+                    log.debug("Ignoring unexpected file {} in invoice store", file);
+                }
+            }
+        }
+        log.info("Indexed {} stored invoices in {}", index.size(), storageDir);
+    }
+
+    // Streams the PDF to a temp file while hashing it, so the document is never held in memory
+    private StoredInvoice store(Order order) {
+        MessageDigest digest = newSha256();
+        String hash;
+        Path target;
+        Path partial = null;
+        try {
+            partial = Files.createTempFile(storageDir, order.getId() + "-", ".part");
+            try (OutputStream out = new DigestOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(partial)), digest)) {
+                pdfService.generateInvoice(order, out);
+            }
+            hash = HexFormat.of().formatHex(digest.digest());
+            target = storageDir.resolve(order.getId() + "-" + hash + ".pdf");
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(partial);
+            throw new UncheckedIOException("Failed to store invoice for order " + order.getOrderNumber(), e);
+        } catch (RuntimeException e) {
+            deleteQuietly(partial);
+            throw e;
+        }
+        StoredInvoice stored = new StoredInvoice(target, "\"" + hash + "\"");
+        // Concurrent first downloads may both render; the first stored file wins
+        StoredInvoice existing = index.putIfAbsent(order.getId(), stored);
+        if (existing != null && !existing.file().equals(target)) {
+            deleteQuietly(target);
+            return existing;
+        }
+        return stored;
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete invoice file {}", file, e);
+        }
+    }
+}
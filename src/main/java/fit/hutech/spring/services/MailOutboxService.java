@@ -0,0 +1,251 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.entities.EmailOutbox;
+import fit.hutech.spring.entities.EmailOutboxStatus;
+import fit.hutech.spring.repositories.IEmailOutboxRepository;
+import fit.hutech.spring.utils.AsyncConfig;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Persistent outbox for outgoing mail. Callers only insert a row; delivery happens on the mail executor,
+// in batches that share one SMTP connection, with exponential backoff for failed messages. Each batch is
+// claimed in the database before it is sent, so several instances can dispatch without sending twice.
+@Service
+@Slf4j
+public class MailOutboxService {
+
+    private final IEmailOutboxRepository outboxRepository;
+    private final JavaMailSender mailSender;
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock dispatchLock = new ReentrantLock();
+
+    @Value("${spring.mail.username:noreply@storystation.com}")
+    private String fromEmail;
+
+    @Value("${app.mail.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${app.mail.initial-backoff-seconds:30}")
+    private long initialBackoffSeconds;
+
+    @Value("${app.mail.max-backoff-minutes:60}")
+    private long maxBackoffMinutes;
+
+    @Value("${app.mail.claim-timeout-minutes:10}")
+    private long claimTimeoutMinutes;
+
+    @Value("${app.mail.retention-days:7}")
+    private int retentionDays;
+
+    public MailOutboxService(IEmailOutboxRepository outboxRepository,
+                             JavaMailSender mailSender,
+                             PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public EmailOutbox enqueue(String to, String subject, String htmlBody) {
+        return enqueue(to, subject, htmlBody, null, null);
+    }
+
+    public EmailOutbox enqueue(String to, String subject, String htmlBody, String attachmentName, byte[] attachment) {
+        EmailOutbox saved = outboxRepository.save(EmailOutbox.builder()
+                .recipient(to)
+                .subject(subject)
+                .htmlBody(htmlBody)
+                .attachmentName(attachmentName)
+                .attachment(attachment)
+                .build());
+        log.debug("Queued email {} to {}", saved.getId(), to);
+        return saved;
+    }
+
+    @Transactional
+    public List<EmailOutbox> enqueueAll(List<EmailOutbox> emails) {
+        List<EmailOutbox> saved = outboxRepository.saveAll(emails);
+        log.debug("Queued {} emails", saved.size());
+        return saved;
+    }
+
+    // Runs on the mail executor, both on wake-up and on the polling schedule that picks up retries
+    @Async(AsyncConfig.MAIL_EXECUTOR)
+    @Scheduled(fixedDelayString = "${app.mail.poll-interval-ms:30000}", initialDelayString = "${app.mail.poll-interval-ms:30000}")
+    public void dispatchAsync() {
+        // Claims keep instances apart; locally, a concurrent wake-up is covered by the run already in progress
+        if (!dispatchLock.tryLock()) {
+            return;
+        }
+        try {
+            int sent;
+            do {
+                sent = dispatchBatch();
+            } while (sent == batchSize);
+        } catch (Exception e) {
+            log.error("Mail dispatch failed", e);
+        } finally {
+            dispatchLock.unlock();
+        }
+    }
+
+    // A claim older than the timeout belongs to an instance that stopped mid-batch; its rows are sent again
+    @Scheduled(fixedDelayString = "${app.mail.claim-check-interval-ms:60000}")
+    public void releaseStaleClaims() {
+        Date cutoff = new Date(System.currentTimeMillis() - Duration.ofMinutes(claimTimeoutMinutes).toMillis());
+        Integer released = transactionTemplate.execute(status -> outboxRepository.releaseClaimsBefore(
+                EmailOutboxStatus.SENDING, EmailOutboxStatus.PENDING, cutoff));
+        if (released != null && released > 0) {
+            log.warn("Released {} emails claimed before {}", released, cutoff);
+        }
+    }
+
+    @Scheduled(cron = "${app.mail.cleanup-cron:0 0 3 * * *}")
+    public void purgeSent() {
+        Date cutoff = new Date(System.currentTimeMillis() - Duration.ofDays(retentionDays).toMillis());
+        Integer removed = transactionTemplate.execute(status ->
+                outboxRepository.deleteSentBefore(EmailOutboxStatus.SENT, cutoff));
+        log.info("Purged {} sent emails from the outbox", removed);
+    }
+
+    private int dispatchBatch() {
+        List<EmailOutbox> due = claimBatch();
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        List<EmailOutbox> built = new ArrayList<>();
+        List<MimeMessage> messages = new ArrayList<>();
+        for (EmailOutbox email : due) {
+            try {
+                messages.add(toMimeMessage(email));
+                built.add(email);
+            } catch (MessagingException e) {
+                markFailed(email, e, true);
+            }
+        }
+
+        if (messages.isEmpty()) {
+            outboxRepository.saveAll(due);
+            return due.size();
+        }
+
+        // JavaMailSender sends the whole array over a single SMTP connection
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(messages.toArray(new MimeMessage[0]));
+        } catch (MailException e) {
+            if (e instanceof MailSendException sendException && !sendException.getFailedMessages().isEmpty()) {
+                failures = sendException.getFailedMessages();
+            } else {
+                // Connection or authentication failure: nothing in the batch was delivered
+                built.forEach(email -> markFailed(email, e, false));
+                outboxRepository.saveAll(due);
+                return 0;
+            }
+        }
+
+        Date now = new Date();
+        int delivered = 0;
+        for (int i = 0; i < built.size(); i++) {
+            EmailOutbox email = built.get(i);
+            Exception failure = failures.get(messages.get(i));
+            if (failure != null) {
+                markFailed(email, failure, false);
+            } else {
+                email.setStatus(EmailOutboxStatus.SENT);
+                email.setSentAt(now);
+                email.setLastError(null);
+                releaseClaim(email);
+                delivered++;
+            }
+        }
+        outboxRepository.saveAll(due);
+        log.info("Dispatched {} of {} queued emails", delivered, due.size());
+        return due.size();
+    }
+
+    // Marks up to a batch of due rows as SENDING under a fresh token in one short transaction, then loads
+    // exactly the rows that token won. Rows another instance is claiming at the same moment are skipped.
+    private List<EmailOutbox> claimBatch() {
+        String token = UUID.randomUUID().toString();
+        Integer claimed = transactionTemplate.execute(status -> {
+            Date now = new Date();
+            List<Long> ids = outboxRepository.findDueIdsForUpdate(now, batchSize);
+            return ids.isEmpty() ? 0 : outboxRepository.claim(ids, token, EmailOutboxStatus.SENDING, now,
+                    EmailOutboxStatus.PENDING);
+        });
+        if (claimed == null || claimed == 0) {
+            return List.of();
+        }
+        return outboxRepository.findByClaimTokenOrderByIdAsc(token);
+    }
+
+    private static void releaseClaim(EmailOutbox email) {
+        email.setClaimToken(null);
+        email.setClaimedAt(null);
+    }
+
+    private MimeMessage toMimeMessage(EmailOutbox email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom(fromEmail);
+        helper.setTo(email.getRecipient());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getHtmlBody(), true);
+        if (email.getAttachment() != null) {
+            helper.addAttachment(email.getAttachmentName(), new ByteArrayResource(email.getAttachment()));
+        }
+        return message;
+    }
+
+    private void markFailed(EmailOutbox email, Exception error, boolean permanent) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        email.setLastError(truncate(error.getMessage()));
+        releaseClaim(email);
+        if (permanent || attempts >= maxAttempts) {
+            email.setStatus(EmailOutboxStatus.FAILED);
+            log.error("Giving up on email {} to {} after {} attempts", email.getId(), email.getRecipient(), attempts);
+            return;
+        }
+        // 30s, 60s, 120s, ... capped at max-backoff
+        long backoffMillis = Math.min(
+                Duration.ofSeconds(initialBackoffSeconds).toMillis() << Math.min(attempts - 1, 20),
+                Duration.ofMinutes(maxBackoffMinutes).toMillis());
+        email.setStatus(EmailOutboxStatus.PENDING);
+        email.setNextAttemptAt(new Date(System.currentTimeMillis() + backoffMillis));
+        log.warn("Email {} to {} failed (attempt {}), retrying in {}s", email.getId(), email.getRecipient(),
+                attempts, backoffMillis / 1000);
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 500 ? message.substring(0, 500) : message;
+    }
+}
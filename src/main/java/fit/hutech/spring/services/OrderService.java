@@ -1,21 +1,31 @@
 package fit.hutech.spring.services;
 
 import fit.hutech.spring.entities.*;
+import fit.hutech.spring.events.OrderCancelledEvent;
+import fit.hutech.spring.events.OrderCreatedEvent;
+import fit.hutech.spring.events.OrderStatusBulkChangedEvent;
+import fit.hutech.spring.events.OrderStatusChangedEvent;
 import fit.hutech.spring.repositories.IOrderRepository;
 import fit.hutech.spring.repositories.IOrderItemRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,7 +33,9 @@ import java.util.UUID;
 public class OrderService {
     private final IOrderRepository orderRepository;
     private final IOrderItemRepository orderItemRepository;
-    private final BookService bookService;
+    private final InventoryService inventoryService;
+    private final SalesSummaryService salesSummaryService;
+    private final ApplicationEventPublisher eventPublisher;
     
     // Status hierarchy for preventing downgrades
     private static final java.util.Map<OrderStatus, Integer> STATUS_LEVELS = java.util.Map.of(
@@ -59,9 +71,6 @@ public class OrderService {
             double discount = book.getDiscount() != null ? book.getDiscount() : 0.0;
             double itemDiscount = price * discount / 100 * cartItem.getQuantity();
             
-            // Reduce stock when order is created
-            bookService.reduceStock(book.getId(), cartItem.getQuantity());
-            
             OrderItem orderItem = OrderItem.builder()
                     .book(book)
                     .quantity(cartItem.getQuantity())
@@ -74,11 +83,27 @@ public class OrderService {
             discountAmount += itemDiscount;
         }
         
+        // Reserve stock for every line in one round trip; a short line rolls back the whole order
+        inventoryService.reserve(cartItems.stream().collect(Collectors.toMap(
+                item -> item.getBook().getId(), CartItem::getQuantity, Integer::sum)));
+        
         order.setSubtotal(subtotal);
         order.setDiscountAmount(discountAmount);
         order.setTotal(subtotal - discountAmount);
         
-        return orderRepository.save(order);
+        Order savedOrder = orderRepository.save(order);
+        eventPublisher.publishEvent(OrderCreatedEvent.of(savedOrder, user.getUsername()));
+        return savedOrder;
+    }
+    
+    private static Map<Long, Integer> quantitiesByBook(Order order) {
+        return order.getOrderItems().stream().collect(Collectors.toMap(
+                item -> item.getBook().getId(), OrderItem::getQuantity, Integer::sum));
+    }
+    
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : null;
     }
     
     private String generateOrderNumber() {
@@ -112,7 +137,32 @@ public class OrderService {
     public Order updateStatus(Long orderId, OrderStatus newStatus) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new IllegalArgumentException("Order not found"));
-        
+        return applyStatus(order, newStatus, false);
+    }
+    
+    // Moves every listed order that allows it to newStatus; orders the rules reject are skipped and left as
+    // they are. Customers of the changed orders are emailed in one batch once the transaction commits.
+    public List<Order> updateStatuses(List<Long> orderIds, OrderStatus newStatus) {
+        List<Order> updated = new ArrayList<>();
+        for (Order order : orderRepository.findAllById(orderIds)) {
+            OrderStatus currentStatus = order.getStatus();
+            try {
+                applyStatus(order, newStatus, true);
+            } catch (IllegalStateException e) {
+                continue;
+            }
+            if (currentStatus != newStatus) {
+                updated.add(order);
+            }
+        }
+        if (!updated.isEmpty()) {
+            eventPublisher.publishEvent(new OrderStatusBulkChangedEvent(
+                    updated.stream().map(Order::getId).toList(), newStatus, currentUsername()));
+        }
+        return updated;
+    }
+    
+    private Order applyStatus(Order order, OrderStatus newStatus, boolean bulk) {
         OrderStatus currentStatus = order.getStatus();
         
         // CANCELLED is a terminal state - cannot change status from CANCELLED
@@ -134,13 +184,19 @@ public class OrderService {
         
         // If changing to CANCELLED, restore stock for all items
         if (newStatus == OrderStatus.CANCELLED) {
-            for (OrderItem item : order.getOrderItems()) {
-                bookService.restoreStock(item.getBook().getId(), item.getQuantity());
-            }
+            inventoryService.release(quantitiesByBook(order));
         }
         
         order.setStatus(newStatus);
-        return orderRepository.save(order);
+        Order savedOrder = orderRepository.save(order);
+        
+        if (newStatus != currentStatus) {
+            String performedBy = currentUsername();
+            eventPublisher.publishEvent(newStatus == OrderStatus.CANCELLED
+                    ? OrderCancelledEvent.of(savedOrder, currentStatus, performedBy, bulk)
+                    : OrderStatusChangedEvent.of(savedOrder, currentStatus, performedBy, bulk));
+        }
+        return savedOrder;
     }
     
     public void cancelOrder(Long orderId) {
@@ -161,30 +217,76 @@ public class OrderService {
             throw new IllegalStateException("Can only cancel orders in PENDING status");
         }
         
-        // Restore stock for each item
-        for (OrderItem item : order.getOrderItems()) {
-            bookService.restoreStock(item.getBook().getId(), item.getQuantity());
-        }
+        // Restore stock for all items
+        inventoryService.release(quantitiesByBook(order));
         
         // Update status to cancelled
         order.setStatus(OrderStatus.CANCELLED);
         orderRepository.save(order);
+        eventPublisher.publishEvent(OrderCancelledEvent.of(order, OrderStatus.PENDING, order.getUser().getUsername()));
     }
     
+    // All-time reporting figures are read from the daily sales rollup, not the orders table
     public Long countByStatus(OrderStatus status) {
-        return orderRepository.countByStatus(status);
+        return salesSummaryService.countByStatus(status);
+    }
+    
+    public Map<OrderStatus, Long> countGroupByStatus() {
+        return salesSummaryService.countGroupByStatus();
     }
     
     public Double getTotalRevenue() {
-        Double revenue = orderRepository.getTotalRevenue();
+        Double revenue = salesSummaryService.getTotalRevenue();
         return revenue != null ? revenue : 0.0;
     }
     
+    // Whole days inside the window are read from the daily sales rollup; only the partial first and last days
+    // are summed from the orders table, over the order_date index. Days follow the JVM zone, as the rollup does.
     public Double getRevenueByDateRange(Date startDate, Date endDate) {
-        Double revenue = orderRepository.getRevenueByDateRange(startDate, endDate);
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate firstDay = startDate.toInstant().atZone(zone).toLocalDate();
+        LocalDate lastDay = endDate.toInstant().atZone(zone).toLocalDate();
+        if (!firstDay.isBefore(lastDay)) {
+            Double revenue = orderRepository.getRevenueByDateRange(startDate, endDate);
+            return revenue != null ? revenue : 0.0;
+        }
+        
+        double revenue = 0;
+        LocalDate firstWholeDay = firstDay;
+        LocalDate lastWholeDay = lastDay;
+        if (startDate.after(startOfDay(firstDay, zone))) {
+            revenue += orderRevenue(startDate, startOfDay(firstDay.plusDays(1), zone));
+            firstWholeDay = firstDay.plusDays(1);
+        }
+        // endDate is inclusive, so the last day is whole only when the window ends on its final millisecond
+        Date afterEnd = new Date(endDate.getTime() + 1);
+        if (afterEnd.before(startOfDay(lastDay.plusDays(1), zone))) {
+            revenue += orderRevenue(startOfDay(lastDay, zone), afterEnd);
+            lastWholeDay = lastDay.minusDays(1);
+        }
+        if (!firstWholeDay.isAfter(lastWholeDay)) {
+            revenue += salesSummaryService.getRevenueBetween(firstWholeDay, lastWholeDay);
+        }
+        return revenue;
+    }
+    
+    private double orderRevenue(Date from, Date until) {
+        Double revenue = orderRepository.getRevenueFromUntil(from, until);
         return revenue != null ? revenue : 0.0;
     }
     
+    private static Date startOfDay(LocalDate day, ZoneId zone) {
+        return Date.from(day.atStartOfDay(zone).toInstant());
+    }
+    
+    public Map<OrderStatus, Long> countGroupByStatus(Date startDate, Date endDate) {
+        Map<OrderStatus, Long> counts = new java.util.EnumMap<>(OrderStatus.class);
+        for (Object[] row : orderRepository.countGroupByStatusBetween(startDate, endDate)) {
+            counts.put((OrderStatus) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+    
     public List<Order> findByDateRange(Date startDate, Date endDate) {
         return orderRepository.findByDateRange(startDate, endDate);
     }
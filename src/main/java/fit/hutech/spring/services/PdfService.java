@@ -10,7 +10,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 
 @Service
@@ -24,15 +24,17 @@ public class PdfService {
     private static final Font BOLD_FONT = new Font(Font.FontFamily.HELVETICA, 10, Font.BOLD);
     private static final Font SMALL_FONT = new Font(Font.FontFamily.HELVETICA, 8, Font.NORMAL, BaseColor.GRAY);
     
-    public byte[] generateInvoice(Order order) {
+    // Writes the invoice straight to the given stream; the stream is left open for the caller
+    public void generateInvoice(Order order, OutputStream out) {
         // Only allow invoice generation for delivered orders
         if (order.getStatus() != OrderStatus.DELIVERED) {
             throw new IllegalStateException("Invoice can only be generated for delivered orders");
         }
         
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+        try {
             Document document = new Document(PageSize.A4);
-            PdfWriter.getInstance(document, baos);
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
             document.open();
             
             // Add header
@@ -53,7 +55,6 @@ public class PdfService {
             document.close();
             
             log.info("Generated invoice PDF for order: {}", order.getOrderNumber());
-            return baos.toByteArray();
             
         } catch (Exception e) {
             log.error("Error generating invoice PDF", e);
@@ -0,0 +1,103 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.entities.RefreshToken;
+import fit.hutech.spring.repositories.IRefreshTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+// Opaque, single-use refresh tokens. Each refresh revokes the presented token and issues its successor in the
+// same family; presenting an already rotated token means it was copied, so the whole family is revoked.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class RefreshTokenService {
+
+    public record Rotation(String username, String refreshToken) {
+    }
+
+    private final IRefreshTokenRepository refreshTokenRepository;
+    private final SecureRandom random = new SecureRandom();
+
+    @Value("${jwt.refresh-expiration:${jwt.expiration}}")
+    private long refreshExpiration;
+
+    public String issue(String username) {
+        return issue(username, UUID.randomUUID().toString());
+    }
+
+    // Empty when the token is unknown, expired, revoked or replayed
+    public Optional<Rotation> rotate(String refreshToken) {
+        RefreshToken current = refreshTokenRepository.findByTokenHashForUpdate(hash(refreshToken)).orElse(null);
+        if (current == null) {
+            return Optional.empty();
+        }
+        Date now = new Date();
+        if (current.getRevokedAt() != null) {
+            int revoked = refreshTokenRepository.revokeFamily(current.getFamily(), now);
+            log.warn("Rotated refresh token reused for {}, revoked {} tokens in its family",
+                    current.getUsername(), revoked);
+            return Optional.empty();
+        }
+        if (current.getExpiresAt().before(now)) {
+            return Optional.empty();
+        }
+        current.setRevokedAt(now);
+        refreshTokenRepository.save(current);
+        return Optional.of(new Rotation(current.getUsername(), issue(current.getUsername(), current.getFamily())));
+    }
+
+    public void revoke(String refreshToken) {
+        refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamily(), new Date()));
+    }
+
+    public void revokeAll(String username) {
+        int revoked = refreshTokenRepository.revokeAllForUser(username, new Date());
+        if (revoked > 0) {
+            log.info("Revoked {} refresh tokens for {}", revoked, username);
+        }
+    }
+
+    @Scheduled(cron = "${jwt.refresh-cleanup-cron:0 30 3 * * *}")
+    public void purgeExpired() {
+        int removed = refreshTokenRepository.deleteExpiredBefore(new Date());
+        log.info("Purged {} expired refresh tokens", removed);
+    }
+
+    private String issue(String username, String family) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        refreshTokenRepository.save(RefreshToken.builder()
+                .tokenHash(hash(token))
+                .username(username)
+                .family(family)
+                .expiresAt(new Date(System.currentTimeMillis() + refreshExpiration))
+                .build());
+        return token;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
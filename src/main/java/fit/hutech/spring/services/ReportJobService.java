@@ -0,0 +1,174 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.dto.ReportJob;
+import fit.hutech.spring.utils.AsyncConfig;
+import fit.hutech.spring.viewmodels.ReportRange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+@Service
+@Slf4j
+public class ReportJobService {
+
+    private final ExcelExportService excelExportService;
+    private final ExportCheckpointService checkpointService;
+    private final TaskExecutor reportExecutor;
+    private final Path storageDir;
+    private final Duration retention;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    // Report parameters -> id of the job currently generating them
+    private final Map<String, String> activeJobsByKey = new ConcurrentHashMap<>();
+
+    public ReportJobService(ExcelExportService excelExportService,
+                            ExportCheckpointService checkpointService,
+                            @Qualifier(AsyncConfig.REPORT_EXECUTOR) TaskExecutor reportExecutor,
+                            @Value("${app.reports.dir:${java.io.tmpdir}/storystation-reports}") String storageDir,
+                            @Value("${app.reports.retention-minutes:60}") long retentionMinutes) throws IOException {
+        this.excelExportService = excelExportService;
+        this.checkpointService = checkpointService;
+        this.reportExecutor = reportExecutor;
+        this.storageDir = Files.createDirectories(Paths.get(storageDir));
+        this.retention = Duration.ofMinutes(retentionMinutes);
+    }
+
+    // Identical requests made while a job is still running share that job instead of starting another
+    public ReportJob submitSalesReport(ReportRange range) {
+        String key = range.incremental()
+                ? "sales:incremental"
+                : "sales:" + toKeyPart(range.startDate()) + ":" + toKeyPart(range.endDate());
+        ReportJob candidate = ReportJob.builder()
+                .id(UUID.randomUUID().toString())
+                .key(key)
+                .status(ReportJob.Status.PENDING)
+                .submittedAt(Instant.now())
+                .build();
+        String jobId = activeJobsByKey.computeIfAbsent(key, k -> {
+            jobs.put(candidate.getId(), candidate);
+            return candidate.getId();
+        });
+
+        ReportJob job = jobs.get(jobId);
+        if (job == candidate) {
+            schedule(job, range);
+        }
+        return job;
+    }
+
+    public Optional<ReportJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    // Drops finished jobs and their files once the retention period has passed
+    @Scheduled(fixedDelayString = "${app.reports.cleanup-interval-ms:600000}")
+    public void purgeExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            if (job.isActive() || job.getCompletedAt() == null || job.getCompletedAt().isAfter(cutoff)) {
+                return false;
+            }
+            deleteQuietly(job.getFile());
+            return true;
+        });
+        
+        // Files left behind by a previous run of the application are no longer tracked. A tracked job's
+        // <id>.xlsx or <id>.xlsx.part is left alone, since a long queued or running job can outlive the cutoff.
+        try (Stream<Path> files = Files.list(storageDir)) {
+            files.filter(file -> !jobs.containsKey(jobIdOf(file)))
+                    .filter(file -> isOlderThan(file, cutoff))
+                    .forEach(ReportJobService::deleteQuietly);
+        } catch (IOException e) {
+            log.warn("Could not scan report directory {}", storageDir, e);
+        }
+    }
+
+    private static String jobIdOf(Path file) {
+        String name = file.getFileName().toString();
+        int extension = name.indexOf(".xlsx");
+        return extension >= 0 ? name.substring(0, extension) : name;
+    }
+
+    private void schedule(ReportJob job, ReportRange range) {
+        try {
+            reportExecutor.execute(() -> run(job, range));
+        } catch (TaskRejectedException e) {
+            fail(job, "Report queue is full, please try again later");
+            throw e;
+        }
+    }
+
+    private void run(ReportJob job, ReportRange range) {
+        job.setStatus(ReportJob.Status.RUNNING);
+        Path target = storageDir.resolve(job.getId() + ".xlsx");
+        Path partial = storageDir.resolve(job.getId() + ".xlsx.part");
+        try {
+            try (OutputStream out = Files.newOutputStream(partial)) {
+                excelExportService.writeSalesReport(range.startDate(), range.endDate(), out);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (range.incremental()) {
+                checkpointService.advance(ExportCheckpointService.SALES_REPORT, range.endDate());
+            }
+            job.setFile(target);
+            job.setCompletedAt(Instant.now());
+            job.setStatus(ReportJob.Status.COMPLETED);
+            log.info("Report job {} completed", job.getId());
+        } catch (Exception e) {
+            log.error("Report job {} failed", job.getId(), e);
+            deleteQuietly(partial);
+            fail(job, "Failed to generate report");
+        } finally {
+            activeJobsByKey.remove(job.getKey(), job.getId());
+        }
+    }
+
+    private void fail(ReportJob job, String message) {
+        job.setError(message);
+        job.setCompletedAt(Instant.now());
+        job.setStatus(ReportJob.Status.FAILED);
+        activeJobsByKey.remove(job.getKey(), job.getId());
+    }
+
+    private static String toKeyPart(Date date) {
+        return date != null ? String.valueOf(date.getTime()) : "*";
+    }
+
+    private static boolean isOlderThan(Path file, Instant cutoff) {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete report file {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.entities.OrderStatus;
+import fit.hutech.spring.repositories.IDailySalesSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class SalesSummaryService {
+    
+    private final IDailySalesSummaryRepository summaryRepository;
+    
+    public void recordOrderCreated(Date orderDate, OrderStatus status, Double total) {
+        summaryRepository.increment(orderDate, status.name(), 1, totalOf(total));
+    }
+    
+    public void recordStatusChange(Date orderDate, Double orderTotal, OrderStatus oldStatus, OrderStatus newStatus) {
+        if (oldStatus == newStatus) {
+            return;
+        }
+        double total = totalOf(orderTotal);
+        summaryRepository.increment(orderDate, oldStatus.name(), -1, -total);
+        summaryRepository.increment(orderDate, newStatus.name(), 1, total);
+    }
+    
+    @Transactional(readOnly = true)
+    public Double getTotalRevenue() {
+        return summaryRepository.sumRevenueExcludingStatus(OrderStatus.CANCELLED);
+    }
+    
+    // Revenue of the whole days firstDay..lastDay, both inclusive
+    @Transactional(readOnly = true)
+    public Double getRevenueBetween(LocalDate firstDay, LocalDate lastDay) {
+        return summaryRepository.sumRevenueBetweenExcludingStatus(firstDay, lastDay, OrderStatus.CANCELLED);
+    }
+    
+    @Transactional(readOnly = true)
+    public Long countByStatus(OrderStatus status) {
+        return summaryRepository.sumOrderCountByStatus(status);
+    }
+    
+    @Transactional(readOnly = true)
+    public Map<OrderStatus, Long> countGroupByStatus() {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        for (Object[] row : summaryRepository.sumOrderCountGroupByStatus()) {
+            counts.put((OrderStatus) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+    
+    // Rewrites the rollup from the orders table in place to repair any drift. The rows are never emptied, and
+    // the rebuild holds locks on the orders it counted until commit, so concurrent increments are neither lost
+    // nor counted twice.
+    @Scheduled(cron = "${app.sales-summary.reconcile-cron:0 30 2 * * *}")
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public void reconcile() {
+        int rows = summaryRepository.rebuildFromOrders();
+        int cleared = summaryRepository.clearOrphanedRows();
+        log.info("Reconciled daily sales summary: {} rows rebuilt, {} cleared", rows, cleared);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (summaryRepository.count() == 0) {
+            reconcile();
+        }
+    }
+    
+    private static double totalOf(Double total) {
+        return total != null ? total : 0.0;
+    }
+}
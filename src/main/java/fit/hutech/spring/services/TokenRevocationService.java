@@ -0,0 +1,63 @@
+package fit.hutech.spring.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import fit.hutech.spring.entities.User;
+import fit.hutech.spring.repositories.IUserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+// Revocation for JWTs. Every token carries the user's token epoch at issue time; revoking a user bumps the
+// epoch stored on the users row, which invalidates all of their earlier tokens at once and survives restarts.
+// Epochs are cached briefly per instance, so another instance honours a revocation within jwt.epoch-cache-seconds.
+@Service
+@Slf4j
+public class TokenRevocationService {
+
+    public static final String EPOCH_CLAIM = "epoch";
+
+    private final IUserRepository userRepository;
+    private final Cache<String, Integer> epochs;
+
+    public TokenRevocationService(IUserRepository userRepository,
+                                  @Value("${jwt.epoch-cache-seconds:30}") long cacheSeconds,
+                                  @Value("${jwt.epoch-cache-size:10000}") long cacheSize) {
+        this.userRepository = userRepository;
+        this.epochs = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheSeconds))
+                .build();
+    }
+
+    public int currentEpoch(String username) {
+        return epochs.get(username, key -> userRepository.findTokenEpochByUsername(key).orElse(0));
+    }
+
+    // Bumps the epoch on the given managed user, so it is written by the caller's transaction together with
+    // the change that caused the revocation; the cached value is dropped once that transaction commits
+    public void revokeAll(User user) {
+        int epoch = (user.getTokenEpoch() != null ? user.getTokenEpoch() : 0) + 1;
+        user.setTokenEpoch(epoch);
+        String username = user.getUsername();
+        epochs.invalidate(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    epochs.invalidate(username);
+                }
+            });
+        }
+        log.info("Revoked tokens issued to {} (epoch {})", username, epoch);
+    }
+
+    // Tokens issued before epochs were introduced have no claim and count as epoch 0
+    public boolean isRevoked(String username, Integer tokenEpoch) {
+        return (tokenEpoch != null ? tokenEpoch : 0) < currentEpoch(username);
+    }
+}
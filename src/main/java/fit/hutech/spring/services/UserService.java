@@ -4,11 +4,15 @@ import fit.hutech.spring.constants.Role;
 import fit.hutech.spring.entities.User;
 import fit.hutech.spring.repositories.IRoleRepository;
 import fit.hutech.spring.repositories.IUserRepository;
+import fit.hutech.spring.utils.CacheConfig;
 import jakarta.validation.constraints.NotNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -23,7 +27,7 @@ import java.util.Optional;
 
 @Service
 @Slf4j
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
     @Autowired
     private IUserRepository userRepository;
     @Autowired
@@ -31,12 +35,19 @@ public class UserService implements UserDetailsService {
     @Autowired
     @Lazy
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    @Autowired
+    private RefreshTokenService refreshTokenService;
 
     @Transactional(isolation = Isolation.SERIALIZABLE, rollbackFor = { Exception.class, Throwable.class })
     public void save(@NotNull User user) {
         log.info("Saving user: {}", user.getUsername());
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         userRepository.save(user);
+        evictUser(user);
         log.info("User saved successfully");
     }
 
@@ -46,6 +57,7 @@ public class UserService implements UserDetailsService {
         userRepository.findByUsername(username).ifPresent(user -> {
             user.getRoles().add(roleRepository.findRoleById(Role.USER.value));
             userRepository.save(user);
+            evictUser(user);
         });
     }
 
@@ -62,12 +74,19 @@ public class UserService implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(String username)
             throws UsernameNotFoundException {
+        // Cache an immutable copy: Spring Security erases credentials on the instance it is handed
+        Cache cache = cacheManager.getCache(CacheConfig.USERS);
+        UserDetails cached = cache != null ? cache.get(username, UserDetails.class) : null;
+        if (cached != null) {
+            return org.springframework.security.core.userdetails.User.withUserDetails(cached).build();
+        }
+        
         log.info("Loading user by username: {}", username);
         var user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
         log.info("User found: {}, roles: {}, enabled: {}, locked: {}", 
             user.getUsername(), user.getRoles().size(), user.isEnabled(), !user.isAccountNonLocked());
-        return org.springframework.security.core.userdetails.User
+        UserDetails userDetails = org.springframework.security.core.userdetails.User
                 .withUsername(user.getUsername())
                 .password(user.getPassword())
                 .authorities(user.getAuthorities())
@@ -76,6 +95,55 @@ public class UserService implements UserDetailsService {
                 .credentialsExpired(false)
                 .disabled(!user.isEnabled())
                 .build();
+        // Locked accounts are not cached so the lock expires on time
+        if (cache != null && user.isAccountNonLocked()) {
+            cache.put(username, userDetails);
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails).build();
+    }
+    
+    // Called by Spring Security after a successful login whose stored hash uses an outdated encoding or cost;
+    // the password itself is unchanged, so issued tokens stay valid
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        userRepository.findByUsername(userDetails.getUsername()).ifPresent(user -> {
+            user.setPassword(newPassword);
+            userRepository.save(user);
+            evictUser(user);
+            log.info("Password hash upgraded for user: {}", user.getUsername());
+        });
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
+    }
+    
+    // Cuts off issued access tokens and every refresh token, so the user has to log in again
+    private void revokeTokens(User user) {
+        tokenRevocationService.revokeAll(user);
+        refreshTokenService.revokeAll(user.getUsername());
+    }
+    
+    private void evictUser(String username) {
+        Cache cache = cacheManager.getCache(CacheConfig.USERS);
+        Cache currentUsers = cacheManager.getCache(CacheConfig.CURRENT_USERS);
+        if (username != null) {
+            if (cache != null) {
+                cache.evict(username);
+            }
+            if (currentUsers != null) {
+                currentUsers.evict(AuthenticationService.byUsername(username));
+            }
+        }
+    }
+    
+    // OAuth sessions resolve the user by email, so that entry is dropped as well
+    private void evictUser(User user) {
+        evictUser(user.getUsername());
+        Cache currentUsers = cacheManager.getCache(CacheConfig.CURRENT_USERS);
+        if (currentUsers != null && user.getEmail() != null) {
+            currentUsers.evict(AuthenticationService.byEmail(user.getEmail()));
+        }
     }
 
     @Transactional
@@ -136,11 +204,36 @@ public class UserService implements UserDetailsService {
         return userRepository.findAll();
     }
 
+    // Profile edits load the managed user and copy only the editable fields, so a cached copy of the
+    // user (with a stale password or token epoch) is never merged back
     @Transactional(isolation = Isolation.SERIALIZABLE, rollbackFor = { Exception.class, Throwable.class })
-    public void updateUser(@NotNull User user) {
-        log.info("Updating user: {}", user.getUsername());
+    public void updateContact(Long userId, String email, String phone) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        String previousEmail = user.getEmail();
+        user.setEmail(email);
+        user.setPhone(phone);
         userRepository.save(user);
-        log.info("User updated successfully");
+        evictUser(user);
+        // The cache entry under the old address would otherwise keep resolving the user
+        Cache currentUsers = cacheManager.getCache(CacheConfig.CURRENT_USERS);
+        if (currentUsers != null && previousEmail != null && !previousEmail.equals(email)) {
+            currentUsers.evict(AuthenticationService.byEmail(previousEmail));
+        }
+        log.info("Contact details updated for user: {}", user.getUsername());
+    }
+    
+    @Transactional(isolation = Isolation.SERIALIZABLE, rollbackFor = { Exception.class, Throwable.class })
+    public void updateShippingAddress(Long userId, String address, String city, String postalCode, String country) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        user.setShippingAddress(address);
+        user.setShippingCity(city);
+        user.setShippingPostalCode(postalCode);
+        user.setShippingCountry(country);
+        userRepository.save(user);
+        evictUser(user);
+        log.info("Shipping address updated for user: {}", user.getUsername());
     }
     
     // ==================== USER MANAGEMENT METHODS ====================
@@ -161,6 +254,7 @@ public class UserService implements UserDetailsService {
             }
             
             userRepository.save(user);
+            evictUser(user);
         });
     }
     
@@ -171,6 +265,7 @@ public class UserService implements UserDetailsService {
                 user.setFailedLoginAttempts(0);
                 user.setLockedUntil(null);
                 userRepository.save(user);
+                evictUser(user);
                 log.info("Reset failed login attempts for user: {}", username);
             }
         });
@@ -183,6 +278,7 @@ public class UserService implements UserDetailsService {
         user.setLockedUntil(null);
         user.setFailedLoginAttempts(0);
         userRepository.save(user);
+        evictUser(user);
         log.info("Account unlocked: {}", user.getUsername());
     }
     
@@ -191,7 +287,11 @@ public class UserService implements UserDetailsService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
         user.setEnabled(enabled);
+        if (!Boolean.TRUE.equals(enabled)) {
+            revokeTokens(user);
+        }
         userRepository.save(user);
+        evictUser(user);
         log.info("User {} {}", user.getUsername(), enabled ? "enabled" : "disabled");
     }
     
@@ -200,7 +300,9 @@ public class UserService implements UserDetailsService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
         user.setPassword(passwordEncoder.encode(newPassword));
+        revokeTokens(user);
         userRepository.save(user);
+        evictUser(user);
         log.info("Password changed for user: {}", user.getUsername());
     }
     
@@ -248,7 +350,10 @@ public class UserService implements UserDetailsService {
             targetUser.getRoles().add(userRole);
         }
         
+        // Tokens still carry the ADMIN role claim
+        revokeTokens(targetUser);
         userRepository.save(targetUser);
+        evictUser(targetUser);
         log.info("User {} demoted from ADMIN to USER", targetUser.getUsername());
     }
     
@@ -260,6 +365,7 @@ public class UserService implements UserDetailsService {
         var adminRole = roleRepository.findRoleById(Role.ADMIN.value);
         user.getRoles().add(adminRole);
         userRepository.save(user);
+        evictUser(user);
         log.info("User {} promoted to ADMIN", user.getUsername());
     }
     
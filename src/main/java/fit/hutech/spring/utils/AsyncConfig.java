@@ -0,0 +1,119 @@
+package fit.hutech.spring.utils;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    public static final String REPORT_EXECUTOR = "reportExecutor";
+    public static final String INVOICE_EXECUTOR = "invoiceExecutor";
+    public static final String INVOICE_ARCHIVE_EXECUTOR = "invoiceArchiveExecutor";
+    public static final String MAIL_EXECUTOR = "mailExecutor";
+    public static final String EVENT_EXECUTOR = "eventExecutor";
+    public static final String LOGIN_EXECUTOR = "loginExecutor";
+
+    // Report generation is heavy on CPU and DB; keep it off the Tomcat workers and bounded
+    @Bean(name = REPORT_EXECUTOR)
+    public ThreadPoolTaskExecutor reportExecutor(
+            @Value("${app.reports.pool-size:2}") int poolSize,
+            @Value("${app.reports.queue-capacity:10}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-");
+        // Reject instead of running on the caller so a full queue never blocks a request thread
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // Background invoice pre-rendering; when the queue is full the work is dropped and done on download
+    @Bean(name = INVOICE_EXECUTOR)
+    public ThreadPoolTaskExecutor invoiceExecutor(
+            @Value("${app.invoices.pool-size:2}") int poolSize,
+            @Value("${app.invoices.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("invoice-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // Renders invoices for bulk ZIP exports; a full queue makes the exporting thread render itself,
+    // which throttles the export instead of failing it
+    @Bean(name = INVOICE_ARCHIVE_EXECUTOR)
+    public ThreadPoolTaskExecutor invoiceArchiveExecutor(
+            @Value("${app.invoices.archive-pool-size:4}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize * 2);
+        executor.setThreadNamePrefix("invoice-archive-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    // Outbox dispatch only; rows stay queued in the database, so dropping a surplus wake-up loses nothing
+    @Bean(name = MAIL_EXECUTOR)
+    public ThreadPoolTaskExecutor mailExecutor(
+            @Value("${app.mail.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("mail-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // After-commit domain event listeners; when saturated the committing thread runs the listener itself
+    @Bean(name = EVENT_EXECUTOR)
+    public ThreadPoolTaskExecutor eventExecutor(
+            @Value("${app.events.pool-size:4}") int poolSize,
+            @Value("${app.events.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("event-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // Password hashing for logins and password changes. Sized below the core count so a login storm leaves
+    // CPU for catalog requests; beyond the queue, logins are rejected rather than piling up
+    @Bean(name = LOGIN_EXECUTOR)
+    public ThreadPoolTaskExecutor loginExecutor(
+            @Value("${app.security.login-pool-size:0}") int poolSize,
+            @Value("${app.security.login-queue-capacity:50}") int queueCapacity) {
+        int threads = poolSize > 0 ? poolSize : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("login-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
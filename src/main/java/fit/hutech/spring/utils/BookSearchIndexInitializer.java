@@ -0,0 +1,83 @@
+package fit.hutech.spring.utils;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookSearchIndexInitializer {
+
+    private static final String INDEX_NAME = "ft_book_search_text";
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile boolean available = false;
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            ensureColumn();
+            backfillSearchText();
+            ensureFullTextIndex();
+            available = true;
+            log.info("Book full-text search index ready");
+        } catch (Exception e) {
+            // Non-MySQL databases fall back to LIKE search
+            log.warn("Full-text search unavailable, falling back to LIKE search: {}", e.getMessage());
+        }
+    }
+
+    private void ensureColumn() {
+        Integer count = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM information_schema.columns
+                WHERE table_schema = DATABASE() AND table_name = 'book' AND column_name = 'search_text'
+                """, Integer.class);
+        if (count == null || count == 0) {
+            jdbcTemplate.execute("ALTER TABLE book ADD COLUMN search_text VARCHAR(255)");
+            log.info("Added search_text column to book table");
+        }
+    }
+
+    private void backfillSearchText() {
+        int updated = 0;
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT id, title, author FROM book WHERE search_text IS NULL LIMIT " + BACKFILL_BATCH_SIZE,
+                    (rs, rowNum) -> new Object[]{
+                            SearchTextUtil.buildSearchText(rs.getString("title"), rs.getString("author")),
+                            rs.getLong("id")
+                    });
+            if (rows.isEmpty()) {
+                break;
+            }
+            jdbcTemplate.batchUpdate("UPDATE book SET search_text = ? WHERE id = ?", rows);
+            updated += rows.size();
+        }
+        if (updated > 0) {
+            log.info("Backfilled search_text for {} books", updated);
+        }
+    }
+
+    private void ensureFullTextIndex() {
+        Integer count = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM information_schema.statistics
+                WHERE table_schema = DATABASE() AND table_name = 'book' AND index_name = ?
+                """, Integer.class, INDEX_NAME);
+        if (count == null || count == 0) {
+            jdbcTemplate.execute("ALTER TABLE book ADD FULLTEXT INDEX " + INDEX_NAME + " (search_text)");
+            log.info("Created FULLTEXT index {} on book", INDEX_NAME);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package fit.hutech.spring.utils;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+@PropertySource("classpath:cache.properties")
+public class CacheConfig {
+
+    public static final String CATEGORIES = "categories";
+    public static final String FEATURED_BOOKS = "featuredBooks";
+    public static final String BOOKS = "books";
+    public static final String USERS = "users";
+    public static final String CURRENT_USERS = "currentUsers";
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(CATEGORIES, Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(Duration.ofHours(1))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(FEATURED_BOOKS, Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(Duration.ofMinutes(10))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(BOOKS, Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(30))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(USERS, Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMinutes(5))
+                .recordStats()
+                .build());
+        // Signed-in user entities by principal; the short TTL bounds staleness for changes not evicted explicitly
+        cacheManager.registerCustomCache(CURRENT_USERS, Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofSeconds(30))
+                .recordStats()
+                .build());
+        // Evictions are applied after the surrounding transaction commits
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,9 @@
+package fit.hutech.spring.utils;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+@Configuration
+@PropertySource("classpath:datasource.properties")
+public class DataSourceConfig {
+}
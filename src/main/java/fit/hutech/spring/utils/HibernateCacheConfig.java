@@ -0,0 +1,9 @@
+package fit.hutech.spring.utils;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+@Configuration
+@PropertySource("classpath:hibernate-cache.properties")
+public class HibernateCacheConfig {
+}
@@ -1,6 +1,12 @@
 package fit.hutech.spring.utils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import fit.hutech.spring.services.TokenRevocationService;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -9,48 +15,79 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secretKey;
+    private final TokenRevocationService revocationService;
+    // Access tokens are short-lived; sessions are extended through refresh tokens
+    private final long jwtExpiration;
+    // Decoded once: building the key and parser on every call dominated the cost of a verification
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    // SHA-256 of the token -> verified claims, each entry dropped when its token expires
+    private final Cache<String, Claims> verifiedTokens;
 
-    @Value("${jwt.expiration}")
-    private long jwtExpiration;
+    public JwtUtil(TokenRevocationService revocationService,
+                   @Value("${jwt.secret}") String secretKey,
+                   @Value("${jwt.access-expiration:900000}") long jwtExpiration,
+                   @Value("${jwt.verified-cache-size:10000}") long verifiedCacheSize) {
+        this.revocationService = revocationService;
+        this.jwtExpiration = jwtExpiration;
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        long remainingMillis = claims.getExpiration().getTime() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+                    }
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
 
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    // Checks signature and expiry once per distinct token; throws a JwtException if the token is invalid
+    // or was revoked. The revocation check is a map lookup, so it runs on every call, cached or not.
+    public Claims verify(String token) {
+        Claims claims = verifiedTokens.get(hash(token), key -> parser.parseSignedClaims(token).getPayload());
+        if (revocationService.isRevoked(claims.getSubject(),
+                claims.get(TokenRevocationService.EPOCH_CLAIM, Integer.class))) {
+            throw new JwtException("Token has been revoked");
+        }
+        return claims;
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    public String extractUsername(String token) {
+        return extractClaim(token, Claims::getSubject);
     }
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public Date extractExpiration(String token) {
+        return extractClaim(token, Claims::getExpiration);
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
+        return claimsResolver.apply(verify(token));
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -59,6 +96,7 @@ public class JwtUtil {
         claims.put("roles", userDetails.getAuthorities().stream()
                 .map(auth -> auth.getAuthority())
                 .toList());
+        claims.put(TokenRevocationService.EPOCH_CLAIM, revocationService.currentEpoch(userDetails.getUsername()));
         return createToken(claims, userDetails.getUsername());
     }
 
@@ -68,12 +106,22 @@ public class JwtUtil {
                 .subject(subject)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        final Claims claims = verify(token);
+        return (claims.getSubject().equals(userDetails.getUsername()) && claims.getExpiration().after(new Date()));
+    }
+
+    // Only the hash is kept in memory, never the bearer token itself
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
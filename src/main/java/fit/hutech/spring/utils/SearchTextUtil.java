@@ -0,0 +1,48 @@
+package fit.hutech.spring.utils;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+public final class SearchTextUtil {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private SearchTextUtil() {
+    }
+
+    // Lowercase and strip diacritics so "Nguyễn Đắc" and "nguyen dac" index the same
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT)
+                .trim();
+    }
+
+    public static String buildSearchText(String... parts) {
+        return Arrays.stream(parts)
+                .map(SearchTextUtil::fold)
+                .filter(part -> !part.isEmpty())
+                .collect(Collectors.joining(" "));
+    }
+
+    // Turns user input into a MySQL boolean-mode query: every term required, prefix matched
+    public static String toBooleanQuery(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        String query = Arrays.stream(NON_WORD.split(fold(keyword)))
+                .filter(term -> !term.isEmpty())
+                .map(term -> "+" + term + "*")
+                .collect(Collectors.joining(" "));
+        return query.isEmpty() ? null : query;
+    }
+}
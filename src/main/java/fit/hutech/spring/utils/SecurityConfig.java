@@ -8,8 +8,12 @@ import fit.hutech.spring.services.OAuthService;
 import fit.hutech.spring.services.UserService;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -17,16 +21,20 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.core.oidc.user.DefaultOidcUser;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.Map;
+
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity(securedEnabled = true, jsr250Enabled = true)
 @RequiredArgsConstructor
+@Slf4j
 public class SecurityConfig {
     private final OAuthService oAuthService;
     private final CustomOAuth2UserService customOAuth2UserService;
@@ -35,9 +43,42 @@ public class SecurityConfig {
     private final CustomAuthenticationFailureHandler authenticationFailureHandler;
     private final CustomAuthenticationSuccessHandler authenticationSuccessHandler;
 
+    // Lowest BCrypt cost accepted regardless of how fast the hardware is; also the cost used when no
+    // target is configured, since calibrating upward spends more CPU on every login
+    private static final int MIN_BCRYPT_STRENGTH = 10;
+    private static final int MAX_BCRYPT_STRENGTH = 16;
+
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Qualifier(AsyncConfig.LOGIN_EXECUTOR) AsyncTaskExecutor loginExecutor,
+                                           @Value("${app.security.bcrypt-target-ms:0}") long targetMillis,
+                                           @Value("${app.security.login-timeout-ms:5000}") long timeoutMillis) {
+        int strength = targetMillis > 0 ? calibrateBcryptStrength(targetMillis) : MIN_BCRYPT_STRENGTH;
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder("bcrypt",
+                Map.of("bcrypt", new BCryptPasswordEncoder(strength)));
+        // Hashes stored before the {id} prefix are plain BCrypt; they are rehashed on the next login
+        encoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return new ThrottledPasswordEncoder(encoder, loginExecutor, timeoutMillis);
+    }
+
+    // Picks the highest cost whose hash still fits the target on this machine. Each step doubles the work,
+    // so one timed hash at the minimum cost is enough to extrapolate.
+    private static int calibrateBcryptStrength(long targetMillis) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(MIN_BCRYPT_STRENGTH);
+        probe.encode("calibration");
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            probe.encode("calibration");
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double baseMillis = Math.max(best / 1_000_000.0, 1.0);
+        int strength = MIN_BCRYPT_STRENGTH;
+        while (strength < MAX_BCRYPT_STRENGTH && baseMillis * (1L << (strength + 1 - MIN_BCRYPT_STRENGTH)) <= targetMillis) {
+            strength++;
+        }
+        log.info("BCrypt cost {} selected ({} ms per hash at cost {}, target {} ms)",
+                strength, Math.round(baseMillis), MIN_BCRYPT_STRENGTH, targetMillis);
+        return strength;
     }
 
     @Bean
@@ -117,6 +158,12 @@ public class SecurityConfig {
                                             return;
                                         }
                                     }
+
+                                    // Creating a new OAuth user hashes its placeholder password, which can be shed
+                                    if (exception instanceof ThrottledPasswordEncoder.HashingBusyException) {
+                                        response.sendRedirect("/login?error=busy");
+                                        return;
+                                    }
                                     
                                     response.sendRedirect("/login?error=oauth_failed&message=" + exception.getMessage());
                                 })
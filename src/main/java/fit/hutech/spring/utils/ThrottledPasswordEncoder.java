@@ -0,0 +1,76 @@
+package fit.hutech.spring.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Runs password hashing on the bounded login executor, so a login storm can use at most its threads' worth of
+// CPU. Work beyond the queue, or queued longer than the timeout, is shed with HashingBusyException.
+@Slf4j
+public class ThrottledPasswordEncoder implements PasswordEncoder {
+
+    // Surfaces through Spring Security as an authentication failure that callers can report as "busy"
+    public static class HashingBusyException extends AuthenticationServiceException {
+        public HashingBusyException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final PasswordEncoder delegate;
+    private final AsyncTaskExecutor executor;
+    private final long timeoutMillis;
+
+    public ThrottledPasswordEncoder(PasswordEncoder delegate, AsyncTaskExecutor executor, long timeoutMillis) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (TaskRejectedException e) {
+            log.warn("Password hashing queue is full, rejecting login");
+            throw new HashingBusyException("Too many concurrent logins, please try again shortly", e);
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new HashingBusyException("Too many concurrent logins, please try again shortly", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new HashingBusyException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package fit.hutech.spring.viewmodels;
+
+import lombok.Builder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+@Builder
+public record BookCursorPageVm(
+        List<BookGetVm> books,
+        String nextCursor,
+        boolean hasMore
+) {
+    private static final String CURSOR_PREFIX = "id:";
+
+    // Opaque continuation token: clients only pass it back, never parse it
+    public static String encodeCursor(Long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Long decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(CURSOR_PREFIX)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return Long.parseLong(decoded.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package fit.hutech.spring.viewmodels;
+
+public record BookSuggestionVm(String text, String type) {
+}
@@ -0,0 +1,17 @@
+package fit.hutech.spring.viewmodels;
+
+import fit.hutech.spring.dto.ReportJob;
+
+import java.time.Instant;
+
+public record ReportJobVm(String id, String status, Instant submittedAt, Instant completedAt,
+                          String error, String downloadUrl) {
+
+    public static ReportJobVm from(ReportJob job) {
+        String downloadUrl = job.getStatus() == ReportJob.Status.COMPLETED
+                ? "/admin/reports/jobs/" + job.getId() + "/download"
+                : null;
+        return new ReportJobVm(job.getId(), job.getStatus().name(), job.getSubmittedAt(),
+                job.getCompletedAt(), job.getError(), downloadUrl);
+    }
+}
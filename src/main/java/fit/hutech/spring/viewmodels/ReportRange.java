@@ -0,0 +1,20 @@
+package fit.hutech.spring.viewmodels;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+// Order window of a report; a null bound means the window is open on that side
+public record ReportRange(Date startDate, Date endDate, boolean incremental) {
+
+    public static ReportRange ofDays(LocalDate from, LocalDate to) {
+        ZoneId zone = ZoneId.systemDefault();
+        Date start = from != null ? Date.from(from.atStartOfDay(zone).toInstant()) : null;
+        // Inclusive of the whole end day
+        Date end = to != null ? new Date(Date.from(to.plusDays(1).atStartOfDay(zone).toInstant()).getTime() - 1) : null;
+        if (start != null && end != null && start.after(end)) {
+            throw new IllegalArgumentException("Start date must not be after end date");
+        }
+        return new ReportRange(start, end, false);
+    }
+}
@@ -0,0 +1,4 @@
+package fit.hutech.spring.viewmodels;
+
+public record TopSellerVm(Long bookId, String title, String author, Long totalSold) {
+}
@@ -13,9 +13,40 @@ document.addEventListener('DOMContentLoaded', function() {
         actionsHeader.style.display = '';
     }
     
+    const searchInput = document.getElementById('searchKeyword');
+    if (searchInput) {
+        searchInput.addEventListener('input', onSearchInput);
+    }
+    
     loadBooks();
 });
 
+let suggestTimer = null;
+
+function onSearchInput(event) {
+    clearTimeout(suggestTimer);
+    const query = event.target.value.trim();
+    if (!query) {
+        document.getElementById('searchSuggestions').innerHTML = '';
+        return;
+    }
+    // Debounce so fast typing only triggers one request
+    suggestTimer = setTimeout(() => loadSuggestions(query), 150);
+}
+
+function loadSuggestions(query) {
+    const url = `${API_BASE_URL}/books/suggest?q=${encodeURIComponent(query)}&limit=8`;
+    
+    fetch(url)
+        .then(response => response.ok ? response.json() : [])
+        .then(suggestions => {
+            document.getElementById('searchSuggestions').innerHTML = suggestions
+                .map(s => `<option value="${escapeHtml(s.text)}"></option>`)
+                .join('');
+        })
+        .catch(error => console.error('Error fetching suggestions:', error));
+}
+
 function loadBooks(pageNo = 0, pageSize = 20, sortBy = 'id') {
     const url = `${API_BASE_URL}/books?pageNo=${pageNo}&pageSize=${pageSize}&sortBy=${sortBy}`;
     
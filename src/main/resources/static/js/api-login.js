@@ -1,5 +1,6 @@
 const API_BASE_URL = '/api';
 const TOKEN_KEY = 'jwt_token';
+const REFRESH_TOKEN_KEY = 'jwt_refresh_token';
 const USER_KEY = 'jwt_user';
 const ORIGINAL_TOKEN_KEY = 'jwt_original_token'; // Store original token
 
@@ -37,6 +38,7 @@ async function handleLogin(event) {
         if (response.ok) {
             // Save token and user info
             localStorage.setItem(TOKEN_KEY, data.token);
+            localStorage.setItem(REFRESH_TOKEN_KEY, data.refreshToken);
             localStorage.setItem(ORIGINAL_TOKEN_KEY, data.token); // Save original token
             localStorage.setItem(USER_KEY, JSON.stringify({
                 username: data.username,
@@ -240,7 +242,17 @@ function clearSession() {
 }
 
 function logout() {
+    // Revoke the refresh token on the server as well; the short-lived access token simply expires
+    const refreshToken = localStorage.getItem(REFRESH_TOKEN_KEY);
+    if (refreshToken) {
+        fetch('/api/auth/logout', {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({ refreshToken })
+        }).catch(() => {});
+    }
     localStorage.removeItem(TOKEN_KEY);
+    localStorage.removeItem(REFRESH_TOKEN_KEY);
     localStorage.removeItem(USER_KEY);
     localStorage.removeItem(ORIGINAL_TOKEN_KEY); // Clear original token too
     
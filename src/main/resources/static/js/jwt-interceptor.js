@@ -3,29 +3,75 @@
 (function() {
     const TOKEN_KEY = 'jwt_token';
     
+    const REFRESH_TOKEN_KEY = 'jwt_refresh_token';
+    
     // Store original fetch
     const originalFetch = window.fetch;
     
+    // Concurrent 401s share one refresh call; refresh tokens are single-use
+    let refreshing = null;
+    
+    function refreshAccessToken() {
+        const refreshToken = localStorage.getItem(REFRESH_TOKEN_KEY);
+        if (!refreshToken) {
+            return Promise.resolve(null);
+        }
+        if (!refreshing) {
+            refreshing = originalFetch('/api/auth/refresh', {
+                method: 'POST',
+                headers: { 'Content-Type': 'application/json' },
+                body: JSON.stringify({ refreshToken })
+            })
+                .then(response => response.ok ? response.json() : null)
+                .then(data => {
+                    if (!data) {
+                        localStorage.removeItem(REFRESH_TOKEN_KEY);
+                        return null;
+                    }
+                    localStorage.setItem(TOKEN_KEY, data.token);
+                    localStorage.setItem(REFRESH_TOKEN_KEY, data.refreshToken);
+                    return data.token;
+                })
+                .catch(() => null)
+                .finally(() => { refreshing = null; });
+        }
+        return refreshing;
+    }
+    
     // Override fetch to automatically include JWT token
     window.fetch = function(...args) {
         let [resource, config] = args;
         
         // Get JWT token from localStorage
         const token = localStorage.getItem(TOKEN_KEY);
+        const isApiCall = typeof resource === 'string' && resource.startsWith('/api');
+        let injected = false;
         
         // If token exists and this is an API call, add Authorization header
-        if (token && typeof resource === 'string' && resource.startsWith('/api')) {
+        if (token && isApiCall) {
             config = config || {};
             config.headers = config.headers || {};
             
             // Add Authorization header if not already present
             if (!config.headers['Authorization']) {
                 config.headers['Authorization'] = `Bearer ${token}`;
+                injected = true;
             }
         }
         
-        // Call original fetch
-        return originalFetch(resource, config);
+        // Call original fetch; an expired access token is refreshed once and the request retried
+        return originalFetch(resource, config).then(response => {
+            if (response.status !== 401 || !injected || resource.startsWith('/api/auth/')) {
+                return response;
+            }
+            return refreshAccessToken().then(newToken => {
+                if (!newToken) {
+                    return response;
+                }
+                config.headers['Authorization'] = `Bearer ${newToken}`;
+                return originalFetch(resource, config);
+            });
+        });
     };
     
     // Also intercept jQuery AJAX if jQuery is loaded
@@ -1,6 +1,7 @@
 // Login page - Handle JWT password login
 
 const TOKEN_KEY = 'jwt_token';
+const REFRESH_TOKEN_KEY = 'jwt_refresh_token';
 const USER_KEY = 'jwt_user';
 const ORIGINAL_TOKEN_KEY = 'jwt_original_token';
 
@@ -29,6 +30,7 @@ document.getElementById('jwtLoginForm').addEventListener('submit', async functio
         if (response.ok) {
             // Save token and user info to localStorage
             localStorage.setItem(TOKEN_KEY, data.token);
+            localStorage.setItem(REFRESH_TOKEN_KEY, data.refreshToken);
             localStorage.setItem(ORIGINAL_TOKEN_KEY, data.token);
             localStorage.setItem(USER_KEY, JSON.stringify({
                 username: data.username,
@@ -1,6 +1,7 @@
 // OAuth Callback Handler - Fetch JWT token after OAuth success
 
 const TOKEN_KEY = 'jwt_token';
+const REFRESH_TOKEN_KEY = 'jwt_refresh_token';
 const USER_KEY = 'jwt_user';
 const ORIGINAL_TOKEN_KEY = 'jwt_original_token';
 
@@ -20,6 +21,7 @@ document.addEventListener('DOMContentLoaded', async function() {
         
         // Store JWT token and user info in localStorage
         localStorage.setItem(TOKEN_KEY, data.token);
+        localStorage.setItem(REFRESH_TOKEN_KEY, data.refreshToken);
         localStorage.setItem(ORIGINAL_TOKEN_KEY, data.token);
         localStorage.setItem(USER_KEY, JSON.stringify({
             username: data.username,
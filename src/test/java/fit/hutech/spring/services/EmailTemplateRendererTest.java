@@ -0,0 +1,138 @@
+package fit.hutech.spring.services;
+
+import fit.hutech.spring.entities.Book;
+import fit.hutech.spring.entities.Order;
+import fit.hutech.spring.entities.OrderItem;
+import fit.hutech.spring.entities.OrderStatus;
+import fit.hutech.spring.entities.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Renders every email template through the cached engine, with the footer fragment resolved from email/fragments
+class EmailTemplateRendererTest {
+
+    private static final String APP_NAME = "Renderer Test Books";
+    private static final String BASE_URL = "https://books.example.com";
+    private static final String FOOTER = "© 2026 <span>" + APP_NAME + "</span>. All rights reserved.";
+
+    private EmailTemplateRenderer renderer;
+    private User user;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        renderer = new EmailTemplateRenderer(APP_NAME, BASE_URL + "/");
+        user = User.builder()
+                .username("reader42")
+                .email("reader42@example.com")
+                .build();
+        order = Order.builder()
+                .orderNumber("ORD-1001")
+                .user(user)
+                .status(OrderStatus.SHIPPED)
+                .total(42.5)
+                .shippingAddress("12 Nguyen Hue")
+                .shippingCity("Ho Chi Minh City")
+                .shippingPostalCode("700000")
+                .shippingCountry("Vietnam")
+                .build();
+        order.addOrderItem(OrderItem.builder()
+                .book(Book.builder().title("The Long Shelf").build())
+                .quantity(2)
+                .priceAtPurchase(21.25)
+                .build());
+    }
+
+    @Test
+    void rendersWelcome() {
+        String html = renderer.render("email/welcome", Map.of("username", "reader42"));
+
+        assertThat(html).contains("reader42").contains(APP_NAME);
+    }
+
+    @Test
+    void rendersOrderConfirmationWithItems() {
+        String html = renderer.render("email/order-confirmation", Map.of("order", order, "user", user));
+
+        assertThat(html).contains("ORD-1001").contains("The Long Shelf").contains("42.50").contains(FOOTER);
+    }
+
+    @Test
+    void rendersOrderStatusUpdate() {
+        String html = renderer.render("email/order-status-update",
+                Map.of("order", order, "user", user, "status", OrderStatus.SHIPPED.getDisplayName()));
+
+        assertThat(html).contains("ORD-1001").contains("Shipped").contains(FOOTER);
+    }
+
+    @Test
+    void rendersShippingNotification() {
+        String html = renderer.render("email/shipping-notification", Map.of("order", order, "user", user));
+
+        assertThat(html).contains("ORD-1001").contains("Ho Chi Minh City").contains(FOOTER);
+    }
+
+    @Test
+    void rendersPasswordReset() {
+        String html = renderer.render("email/password-reset",
+                Map.of("username", "reader42", "resetToken", "reset-token-123"));
+
+        assertThat(html).contains("reader42")
+                .contains("href=\"" + BASE_URL + "/reset-password?token=reset-token-123\"")
+                .contains(FOOTER);
+    }
+
+    @Test
+    void rendersPasswordResetOtp() {
+        String html = renderer.render("email/password-reset-otp", Map.of("otp", "734211", "validityMinutes", 10));
+
+        assertThat(html).contains("734211").contains(APP_NAME);
+    }
+
+    @Test
+    void rendersAccountLocked() {
+        String html = renderer.render("email/account-locked", Map.of("username", "reader42"));
+
+        assertThat(html).contains("<strong>reader42</strong>").contains(FOOTER);
+    }
+
+    @Test
+    void rendersLowStockAlert() {
+        String html = renderer.render("email/low-stock-alert", Map.of("bookTitle", "The Long Shelf", "currentStock", 3));
+
+        assertThat(html).contains("<span>The Long Shelf</span>").contains("<span>3</span>").contains(FOOTER);
+    }
+
+    @Test
+    void cachedTemplateRendersEachCallWithItsOwnVariables() {
+        String first = renderer.render("email/account-locked", Map.of("username", "first-reader"));
+        String second = renderer.render("email/account-locked", Map.of("username", "second-reader"));
+
+        assertThat(first).contains("first-reader").doesNotContain("second-reader");
+        assertThat(second).contains("second-reader").doesNotContain("first-reader");
+        assertThat(second).isEqualTo(first.replace("first-reader", "second-reader"));
+    }
+
+    @Test
+    void renderEachKeepsItemOrderForEqualOrders() {
+        Order other = Order.builder()
+                .orderNumber("ORD-1002")
+                .user(user)
+                .status(OrderStatus.DELIVERED)
+                .total(10.0)
+                .build();
+        // Order uses a constant hashCode, so the results must be matched by position, not by the order itself
+        List<String> html = renderer.renderEach("email/order-status-update", List.of(order, other),
+                o -> Map.of("order", o, "user", user, "status", o.getStatus().getDisplayName()));
+
+        assertThat(html).hasSize(2);
+        assertThat(html.get(0)).contains("ORD-1001").contains("Shipped").doesNotContain("ORD-1002");
+        assertThat(html.get(1)).contains("ORD-1002").contains("Delivered").doesNotContain("ORD-1001");
+        assertThat(html.get(1)).contains(FOOTER);
+    }
+}